@@ -0,0 +1,500 @@
+/* This class explores the game tree with alpha/beta pruning, like
+ * Play_nk_TTT's computerPlay, but remembers positions in a transposition
+ * table keyed by the board's incrementally updated Zobrist key. Looking up
+ * a position therefore builds no String and allocates nothing. Any board
+ * representation implementing nk_TicTacToeADT can be searched.
+ * Scores follow nk_TicTacToe.evalBoard(): 3 computer wins, 2 draw,
+ * 1 undecided, 0 human wins.
+ *
+ * With a time budget, the search deepens iteratively: levels 0, 1, 2, ...
+ * are searched in turn until the budget runs out, and the best play of the
+ * last completed iteration is returned. Each iteration first tries the best
+ * play the table remembers from the previous one.
+ *
+ * Plays are ordered to make alpha/beta cuts happen early: the table's best
+ * play first, then the killer plays that caused a cut at the same level,
+ * then by history (how often and how deep a play caused cuts), with squares
+ * closer to the centre first among equals.
+ *
+ * With symmetry on, the table is keyed by the canonical key of the board,
+ * so the 8 rotations and reflections of a position share one entry, and the
+ * best play is stored as a square of the canonical image of the board.
+ *
+ * Another thread may call stop() to end a search early; the search then
+ * returns the best play found so far.
+ *
+ * evalBoard() scores every position the depth limit cuts off as undecided.
+ * With graded evaluation, scores are kept internally in units of
+ * GRADED_UNIT, and an undecided position cut off by the limit scores
+ * GRADED_UNIT plus the board's open-line balance, kept within half a unit,
+ * so that positions with more or longer open lines for the computer are
+ * preferred while wins, draws and losses still outrank them. Scores are
+ * turned back to the evalBoard() scale before they are returned.
+ *
+ * With threats on, a node is not searched further when the player to move
+ * can complete a line at once (a win) or when the opponent can complete
+ * lines on two squares (a loss, as only one can be blocked). When the
+ * opponent can complete a line on a single square, blocking it is the only
+ * play tried, since any other loses.
+ */
+public class AlphaBetaSearch implements SearchEngine {
+    public static final char COMPUTER = 'O';
+    public static final char HUMAN    = 'X';
+    public static final int GRADED_UNIT = 1000; // the internal score of one step of evalBoard() when graded.
+
+    private static final int CHECK_INTERVAL = 1024; // nodes searched between two looks at the clock.
+    private static final int HASH_MOVE = Integer.MAX_VALUE;      // ordering key of the table's play.
+    private static final int KILLER_MOVE = Integer.MAX_VALUE / 2; // ordering key of a killer play.
+
+    private nk_TicTacToeADT t;       // the board being searched.
+    private TranspositionTable table; // the positions scored so far.
+    private int board_size;
+    private int max_level;           // the deepest level of the tree explored.
+    private int level_limit;         // the deepest level explored by the current iteration.
+
+    private long budget;             // the time allowed per move in nanoseconds, 0 for no limit.
+    private long deadline;           // System.nanoTime() at which the current search stops.
+    private boolean stopped;         // true once the deadline has passed or stop() was called.
+    private volatile boolean cancelled; // set by stop(), possibly from another thread.
+    private SearchListener listener; // told of the best play after every iteration, or null.
+    private boolean horizon;         // true if a score below the current node was cut by level_limit.
+    private long nodes;              // the number of positions searched so far.
+    private long probes, hits;       // table lookups, and the ones whose score was used.
+    private long[] cutoffs;          // cutoffs[level] counts the alpha/beta cuts at that level.
+    private SearchStats stats;       // receives the counts of every search, or null.
+    private int completedLevel;      // the level_limit of the last completed iteration.
+
+    private boolean keepTable;       // true to keep the table's positions from one move to the next.
+    private boolean ordering;        // false to try the plays in row-major order.
+    private boolean symmetry;        // true to share table entries between symmetric positions.
+    private int[][] plays;           // plays[level] holds the ordered plays of the node at that level.
+    private int[][] keys;            // keys[level][i] is the ordering key of plays[level][i].
+    private int[][] killers;         // killers[level] holds the last two plays that caused a cut there.
+    private int[][] history;         // history[side][square] grows each time the play causes a cut.
+    private int[] centrality;        // centrality[square] is larger for squares closer to the centre.
+    private int unit = 1;            // the internal score of one step of evalBoard(): 1, or GRADED_UNIT.
+    private boolean threats;         // true to settle immediate wins and threats without searching.
+    private int[][] winning;         // winning[level] receives the winning squares found at that level.
+
+    /* Class Constructor
+     * @param t the board to search, which is restored after every search.
+     * @param board_size the dimension of the board.
+     * @param max_level the maximum level of the game tree that will be explored.
+     */
+    public AlphaBetaSearch(nk_TicTacToeADT t, int board_size, int max_level) {
+        this(t, board_size, max_level, t.createTranspositionTable());
+    }
+
+    /* Class Constructor
+     * @param t the board to search, which is restored after every search.
+     * @param board_size the dimension of the board.
+     * @param max_level the maximum level of the game tree that will be explored.
+     * @param table the transposition table to use, possibly shared with other searches.
+     */
+    public AlphaBetaSearch(nk_TicTacToeADT t, int board_size, int max_level, TranspositionTable table) {
+        this.t = t;
+        this.board_size = board_size;
+        this.max_level = max_level;
+        this.level_limit = max_level;
+        this.table = table;
+
+        int squares = board_size * board_size;
+        int levels = Math.min(Math.max(max_level, 0), squares) + 1;
+        ordering = true;
+        plays = new int[levels][squares];
+        keys = new int[levels][squares];
+        killers = new int[levels][2];
+        cutoffs = new long[levels];
+        winning = new int[levels][2];
+        for (int level = 0; level < levels; level++) killers[level][0] = killers[level][1] = -1;
+        history = new int[2][squares];
+        centrality = new int[squares];
+        for (int square = 0; square < squares; square++) {
+            /* twice the distance to the centre, so that it is an integer */
+            int distance = Math.abs(2 * (square / board_size) - board_size + 1)
+                         + Math.abs(2 * (square % board_size) - board_size + 1);
+            centrality[square] = 2 * board_size - distance;
+        }
+    }
+
+    /* Mutator Method
+     * @param ordering false to try plays in row-major order like the original
+     *    search, which helps measuring what the ordering saves.
+     */
+    public void setMoveOrdering(boolean ordering) {
+        this.ordering = ordering;
+    }
+
+    /* Mutator Method
+     * Positions are stored with the number of levels searched below them, so the
+     * scores stay valid for later moves and for any board the same game reaches.
+     * @param keepTable true to keep the table from one move to the next instead of
+     *    clearing it before every move.
+     */
+    public void setKeepTable(boolean keepTable) {
+        this.keepTable = keepTable;
+    }
+
+    /* Mutator Method
+     * @param symmetry true to key the table by the canonical key of the board, so
+     *    that rotated and reflected positions are stored and searched only once.
+     */
+    public void setSymmetry(boolean symmetry) {
+        this.symmetry = symmetry;
+    }
+
+    /* Mutator Method
+     * @param graded true to grade the undecided positions cut off by the depth
+     *    limit by their open lines, instead of scoring them all 1.
+     */
+    public void setGradedEvaluation(boolean graded) {
+        unit = graded ? GRADED_UNIT : 1;
+    }
+
+    /* Mutator Method
+     * @param threats true to take immediate wins, block single threats and
+     *    score double threats as lost without searching them.
+     */
+    public void setThreats(boolean threats) {
+        this.threats = threats;
+    }
+
+    /* Mutator Method
+     * @param millis the time allowed to choose a play, or 0 to always search to max_level.
+     */
+    public void setTimeBudget(long millis) {
+        budget = millis * 1000000L;
+    }
+
+    /* Mutator Method
+     * @param listener the listener told of the best play found so far, or null.
+     */
+    public void setSearchListener(SearchListener listener) {
+        this.listener = listener;
+    }
+
+    /* Mutator Method
+     * @param stats the statistics each call to computerPlay(symbol) adds its counts to, or null.
+     */
+    public void setStats(SearchStats stats) {
+        this.stats = stats;
+    }
+
+    /* This method makes the running search return as soon as possible with
+     * the best play found so far. It may be called from any thread, also
+     * before the search starts, and stays in effect until clearStop().
+     */
+    public void stop() {
+        cancelled = true;
+    }
+
+    /* This method withdraws an earlier stop(), so that the next search runs.
+     * Call it before handing the search to another thread, so that a stop()
+     * arriving before the search starts is not lost.
+     */
+    public void clearStop() {
+        cancelled = false;
+    }
+
+    /* This method chooses the best play for the given player on the current board.
+     * Like the original search, a new table is used for every move unless
+     * setKeepTable(true) was called. Without a time budget the tree is
+     * searched to max_level at once. With one, it is searched to increasing
+     * levels, up to max_level, until time runs out or an iteration scores the
+     * position without reaching its level limit.
+     * If stop() is called, the best play of the last completed iteration is
+     * returned, or without a time budget the best play among the plays at the
+     * root searched so far.
+     * @param symbol the player to move, COMPUTER or HUMAN.
+     * @return the best play and its score.
+     */
+    public PosPlay computerPlay(char symbol) {
+        if (!keepTable) table.clear();
+        nodes = probes = hits = 0;
+        for (int level = 0; level < cutoffs.length; level++) cutoffs[level] = 0;
+        stopped = false;
+        for (int level = 0; level < killers.length; level++) killers[level][0] = killers[level][1] = -1;
+        for (int square = 0; square < centrality.length; square++) history[0][square] = history[1][square] = 0;
+        if (budget == 0) {
+            level_limit = max_level;
+            completedLevel = max_level;
+            int play = search(symbol, -1, 4 * unit, 0);
+            report(stats);
+            if (!stopped) return toPlay(play);
+            completedLevel = -1;
+            if (PosPlay.square(play) != -1) return toPlay(play);
+            /* stopped before any play at the root was scored: take the first one */
+            orderPlays(symbol, 0);
+            return new PosPlay(1, plays[0][0] / board_size, plays[0][0] % board_size);
+        }
+
+        deadline = System.nanoTime() + budget;
+        int best = 0;
+        for (level_limit = 0; level_limit <= max_level; level_limit++) {
+            horizon = false;
+            int play = search(symbol, -1, 4 * unit, 0);
+            if (stopped) break;
+            best = play;
+            completedLevel = level_limit;
+            /* remember the root's best play so that the next iteration tries it first */
+            table.store(key(), PosPlay.score(play), horizon ? level_limit + 1 : TranspositionTable.SOLVED,
+                        TranspositionTable.EXACT, storedMove(PosPlay.square(play)));
+            if (listener != null) listener.searchProgress(level_limit, nodes, toPlay(play));
+            if (!horizon) break;  // the score is final, searching deeper changes nothing
+        }
+        report(stats);
+        return toPlay(best);
+    }
+
+    /* Accessor Method
+     * @return the transposition table used by this search.
+     */
+    public TranspositionTable getTable() {
+        return table;
+    }
+
+    /* Accessor Method
+     * @return the number of positions searched since the last call to computerPlay(symbol).
+     */
+    public long getNodes() {
+        return nodes;
+    }
+
+    /* Accessor Method
+     * @return the deepest level fully searched by the last call to computerPlay,
+     *    or -1 if it was stopped before completing one.
+     */
+    public int getCompletedLevel() {
+        return completedLevel;
+    }
+
+    /* This method adds the counts of the search to the given statistics.
+     * @param stats the statistics, or null.
+     */
+    void report(SearchStats stats) {
+        if (stats != null) stats.addSearch(nodes, cutoffs, probes, hits);
+    }
+
+    /* Accessor Method
+     * @return true if the last search was stopped by the time budget or by stop().
+     */
+    boolean wasStopped() {
+        return stopped;
+    }
+
+    /* This method scores a board whose game is over or that the depth limit cuts off.
+     * @param t a board.
+     * @param unit the internal score of one step of evalBoard().
+     * @return evalBoard() times unit, plus the open-line balance kept within half
+     *    a unit if the game is undecided and unit is larger than 1.
+     */
+    static int leafScore(nk_TicTacToeADT t, int unit) {
+        int score = t.evalBoard();
+        if (unit == 1 || score != 1) return score * unit;
+        int grade = Math.max(1 - unit / 2, Math.min(unit / 2 - 1, t.openLines()));
+        return unit + grade;
+    }
+
+    /* This method turns an internal score back to the scale of evalBoard().
+     * @param score an internal score.
+     * @param unit the internal score of one step of evalBoard().
+     * @return the nearest evalBoard() score.
+     */
+    static int evalScore(int score, int unit) {
+        return Math.floorDiv(score + unit / 2, unit);
+    }
+
+    /* Helper Method
+     * @param packed a play packed by PosPlay.pack() with an internal score.
+     * @return the play, with its score on the scale of evalBoard().
+     */
+    private PosPlay toPlay(int packed) {
+        int square = PosPlay.square(packed);
+        int score = evalScore(PosPlay.score(packed), unit);
+        if (square == -1) return new PosPlay(score, -1, -1);
+        return new PosPlay(score, square / board_size, square % board_size);
+    }
+
+    /* This method explores the game tree below the current board.
+     * It is also used by ParallelSearch to search below a play made at the root.
+     * The result is packed into an int by PosPlay.pack(), and the plays of
+     * each level are listed in preallocated arrays, so the search allocates
+     * nothing per node.
+     * @param symbol the player to move.
+     * @param highest_score the best score the computer is already assured of.
+     * @param lowest_score the best score the human is already assured of.
+     * @param level the level of the game tree being explored.
+     * @return the best play for symbol and its internal score, packed. The result
+     *    is meaningless if the search was stopped by the time budget.
+     */
+    int search(char symbol, int highest_score, int lowest_score, int level) {
+        char opponent;           // Opponent's symbol
+        int reply;               // Opponent's best reply, packed
+        int score;               // Score of the play being tried
+        int best = -1;           // Square of best play
+        int value;
+        long entry;
+
+        if (symbol == COMPUTER) {
+            opponent = HUMAN; value = -1;
+        }
+        else {
+            opponent = COMPUTER; value = 4 * unit;
+        }
+
+        if (++nodes % CHECK_INTERVAL == 0 && level_limit > 0
+            && (cancelled || (budget != 0 && System.nanoTime() > deadline))) stopped = true;
+        if (stopped) return PosPlay.pack(value, best);
+
+        int count;
+        if (threats) {
+            int[] found = winning[level];
+            if (t.winningSquares(symbol, found) > 0)
+                return PosPlay.pack(symbol == COMPUTER ? 3 * unit : 0, found[0]);
+            count = t.winningSquares(opponent, found);
+            if (count > 1)  // only one of the opponent's winning squares can be blocked
+                return PosPlay.pack(symbol == COMPUTER ? 0 : 3 * unit, found[0]);
+            if (count == 1) plays[level][0] = found[0];
+            else count = orderPlays(symbol, level);
+        }
+        else count = orderPlays(symbol, level);
+        for (int i = 0; i < count; i++) {
+            int square = plays[level][i];
+            int row = square / board_size;
+            int column = square % board_size;
+
+            t.storePlay(row, column, symbol);
+            if (t.wins(symbol) || t.isDraw())
+                score = t.evalBoard() * unit;
+            else if (level >= level_limit) {
+                score = leafScore(t, unit);
+                horizon = true;
+            }
+            else {
+                int depth = level_limit - level;
+                entry = table.probe(key());
+                probes++;
+                if (TranspositionTable.usable(entry, depth, highest_score, lowest_score)) {
+                    hits++;
+                    score = TranspositionTable.score(entry);
+                    if (TranspositionTable.depth(entry) != TranspositionTable.SOLVED) horizon = true;
+                }
+                else {
+                    boolean outerHorizon = horizon;
+                    horizon = false;
+                    reply = search(opponent, highest_score, lowest_score, level + 1);
+                    if (stopped) {
+                        t.storePlay(row, column, ' ');
+                        return PosPlay.pack(value, best);
+                    }
+                    score = PosPlay.score(reply);
+                    int bound = TranspositionTable.EXACT;
+                    if (score <= highest_score) bound = TranspositionTable.UPPER;
+                    else if (score >= lowest_score) bound = TranspositionTable.LOWER;
+                    int replyMove = PosPlay.square(reply);
+                    if (replyMove != -1) replyMove = storedMove(replyMove);
+                    table.store(key(), score, horizon ? depth : TranspositionTable.SOLVED, bound, replyMove);
+                    horizon |= outerHorizon;
+                }
+            }
+            t.storePlay(row, column, ' ');
+
+            if ((symbol == COMPUTER && score > value) ||
+                (symbol == HUMAN && score < value)) {
+                best = square;
+                value = score;
+
+                /* Alpha/beta cut */
+                if (symbol == COMPUTER && value > highest_score)
+                    highest_score = value;
+                else if (symbol == HUMAN && value < lowest_score)
+                    lowest_score = value;
+
+                if (level == 0 && budget == 0 && listener != null)
+                    listener.searchProgress(level_limit, nodes, toPlay(PosPlay.pack(value, best)));
+
+                if (highest_score >= lowest_score) {
+                    cutoffs[level]++;
+                    recordCut(symbol, level, square);
+                    return PosPlay.pack(value, best);
+                }
+            }
+        }
+        return PosPlay.pack(value, best);
+    }
+
+    /* Helper Method
+     * @return the key of the current board in the table.
+     */
+    private long key() {
+        return symmetry ? t.getCanonicalKey() : t.getKey();
+    }
+
+    /* Helper Method
+     * @param square a square of the current board.
+     * @return the square to store in the table for it.
+     */
+    private int storedMove(int square) {
+        return symmetry ? t.toCanonical(square) : square;
+    }
+
+    /* Helper Method
+     * @param move a square stored in the table for the current board, or -1.
+     * @return the matching square of the current board, or -1.
+     */
+    private int boardMove(int move) {
+        if (move < 0 || !symmetry) return move;
+        return t.fromCanonical(move);
+    }
+
+    /* Helper Method
+     * This method lists the empty squares of the board in plays[level],
+     * in the order they should be tried.
+     * @param symbol the player to move.
+     * @param level the level of the node.
+     * @return the number of plays listed.
+     */
+    private int orderPlays(char symbol, int level) {
+        int[] list = plays[level];
+        int[] key = keys[level];
+        int count = 0;
+        int hashMove = ordering ? boardMove(TranspositionTable.move(table.probe(key()))) : -1;
+        int[] sideHistory = history[symbol == COMPUTER ? 0 : 1];
+
+        for (int square = 0; square < centrality.length; square++) {
+            if (!t.squareIsEmpty(square / board_size, square % board_size)) continue;
+            int k = 0;
+            if (ordering) {
+                if (square == hashMove) k = HASH_MOVE;
+                else if (square == killers[level][0] || square == killers[level][1]) k = KILLER_MOVE;
+                else k = sideHistory[square] * centrality.length + centrality[square];
+            }
+            /* insertion sort by decreasing key; equal keys keep row-major order */
+            int i = count++;
+            while (i > 0 && key[i - 1] < k) {
+                list[i] = list[i - 1];
+                key[i] = key[i - 1];
+                i--;
+            }
+            list[i] = square;
+            key[i] = k;
+        }
+        return count;
+    }
+
+    /* Helper Method
+     * This method remembers a play that caused an alpha/beta cut.
+     * @param symbol the player who made the play.
+     * @param level the level of the node where the cut happened.
+     * @param square the square of the play.
+     */
+    private void recordCut(char symbol, int level, int square) {
+        if (killers[level][0] != square) {
+            killers[level][1] = killers[level][0];
+            killers[level][0] = square;
+        }
+        int remaining = level_limit - level + 1;
+        int[] sideHistory = history[symbol == COMPUTER ? 0 : 1];
+        sideHistory[square] = Math.min(sideHistory[square] + remaining * remaining, KILLER_MOVE / centrality.length - 1);
+    }
+}
@@ -0,0 +1,475 @@
+/* This class implements an n-k tic-tac-toe board as bitboards, one set of
+ * bits per player. Boards up to 8x8 fit in a single long per player, with
+ * square (row, col) on bit row * 8 + col. Larger boards, up to 64x64, use
+ * one long word per row, with square (row, col) on bit col of word row.
+ * A line of 'inline' symbols is found by shifting the bits along a
+ * direction and AND-ing the shifted copies together, which checks every
+ * line of the board in that direction at once.
+ *
+ * storePlay() only updates the bitboards and the Zobrist key of the board.
+ * Everything else a search may ask for (open lines, winning squares, the
+ * keys of the symmetric images and the base-3 index) is computed from the
+ * bitboards when it is asked for, with the same shifted copies.
+ */
+public class BitboardTicTacToe implements nk_TicTacToeADT {
+    private static final int[] SHIFTS = {1, 8, 9, 7}; // right, down, down-right and down-left on 8-bit rows.
+
+    private int inline;
+    private int max_levels;
+    private int board_size;
+    private boolean small;    // true if the board fits in one long per player.
+
+    private long xBits, oBits;  // the squares of each player, for small boards.
+    private long[] startMasks;  // startMasks[d] holds the squares where a line in direction d fits.
+
+    private long[] xRows, oRows; // the squares of each player by row, for large boards.
+    private long rightStarts;    // the columns where a line fits going right.
+    private long leftStarts;     // the columns where a line fits going left.
+    private long allSquares;     // the squares of the board, or of a row on large boards.
+
+    private Zobrist zobrist;     // the random keys of each square and symbol.
+    private long key;            // the Zobrist key of the gameboard.
+    private long[] keys;         // scratch for the keys of the 8 symmetric images.
+    private long[] xPlanes, oPlanes; // scratch for the symbols per line, counted in binary by openLines().
+
+    /* Class Constructor
+     * @param board_size the dimension of the game board, at most 64.
+     * @param inline the number of symbols inline needed to win.
+     * @param max_levels the maximum level of the game tree the program explores.
+     * @throws IllegalArgumentException if the board is larger than 64x64.
+     */
+    public BitboardTicTacToe(int board_size, int inline, int max_levels) {
+        if (board_size > 64) throw new IllegalArgumentException("Bitboards hold at most 64x64 squares");
+        this.inline = inline;
+        this.max_levels = max_levels;
+        this.board_size = board_size;
+        small = (board_size <= 8);
+        zobrist = new Zobrist(board_size);
+        keys = new long[Zobrist.SYMMETRIES];
+        int planes = 1;
+        while ((1 << planes) <= inline) planes++;
+        xPlanes = new long[planes];
+        oPlanes = new long[planes];
+
+        int last = board_size - inline;  // the last row or column a line may start on
+        if (small) {
+            startMasks = new long[4];
+            for (int row = 0; row < board_size; row++)
+                for (int col = 0; col < board_size; col++) {
+                    long bit = 1L << (row * 8 + col);
+                    allSquares |= bit;
+                    if (col <= last) startMasks[0] |= bit;
+                    if (row <= last) startMasks[1] |= bit;
+                    if (row <= last && col <= last) startMasks[2] |= bit;
+                    if (row <= last && col >= inline - 1 && col < board_size) startMasks[3] |= bit;
+                }
+        }
+        else {
+            xRows = new long[board_size];
+            oRows = new long[board_size];
+            for (int col = 0; col < board_size; col++) {
+                allSquares |= 1L << col;
+                if (col <= last) rightStarts |= 1L << col;
+                if (col >= inline - 1) leftStarts |= 1L << col;
+            }
+        }
+    }
+
+    /* This method creates a transposition table keyed by the Zobrist key of the gameboard.
+     * @return an empty TranspositionTable instance.
+     */
+    public TranspositionTable createTranspositionTable() {
+        return (new TranspositionTable(1 << 16));
+    }
+
+    /* Accessor Method
+     * @return the Zobrist key of the current gameboard.
+     */
+    public long getKey() {
+        return key;
+    }
+
+    /* Accessor Method
+     * The index is read from the bitboards, in O(board_size^2).
+     * @return the gameboard read as a base-3 number, as in nk_TicTacToe.getIndex().
+     */
+    public long getIndex() {
+        long index = 0;
+        for (int square = board_size * board_size - 1; square >= 0; square--)
+            index = 3 * index + PackedKey.code(symbolAt(square / board_size, square % board_size));
+        return index;
+    }
+
+    /* Accessor Method
+     * The keys of the symmetric images are computed from the occupied squares.
+     * @return the Zobrist key of the gameboard or of one of its rotations and reflections,
+     *    the same for all 8 of them.
+     */
+    public long getCanonicalKey() {
+        symmetricKeys();
+        return keys[Zobrist.canonicalSymmetry(keys)];
+    }
+
+    /* Accessor Method
+     * @param square a square of the gameboard, row * board_size + col.
+     * @return the matching square of the canonical image of the gameboard.
+     */
+    public int toCanonical(int square) {
+        symmetricKeys();
+        return zobrist.image(Zobrist.canonicalSymmetry(keys), square);
+    }
+
+    /* Accessor Method
+     * @param square a square of the canonical image of the gameboard.
+     * @return the matching square of the gameboard, row * board_size + col.
+     */
+    public int fromCanonical(int square) {
+        symmetricKeys();
+        return zobrist.inverse(Zobrist.canonicalSymmetry(keys), square);
+    }
+
+    /* This method updates the gameboard by setting or clearing the bits of the square,
+     * and the Zobrist key; nothing else is kept up to date.
+     * @param row the row number in which the symbol is placed.
+     * @param col the column number in which the symbol is placed.
+     * @param symbol the symbol to place in (row, col). Either 'X', 'O' or ' '.
+     */
+    public void storePlay(int row, int col, char symbol) {
+        int square = row * board_size + col;
+        key ^= zobrist.key(square, symbolAt(row, col)) ^ zobrist.key(square, symbol);
+
+        if (small) {
+            long bit = 1L << (row * 8 + col);
+            xBits &= ~bit;
+            oBits &= ~bit;
+            if (symbol == 'X') xBits |= bit;
+            else if (symbol == 'O') oBits |= bit;
+        }
+        else {
+            long bit = 1L << col;
+            xRows[row] &= ~bit;
+            oRows[row] &= ~bit;
+            if (symbol == 'X') xRows[row] |= bit;
+            else if (symbol == 'O') oRows[row] |= bit;
+        }
+    }
+
+    /* This method makes an independent board with the same configuration,
+     * so that another thread can search it.
+     * @return a copy of this gameboard.
+     */
+    public BitboardTicTacToe copy() {
+        BitboardTicTacToe board = new BitboardTicTacToe(board_size, inline, max_levels);
+        for (int row = 0; row < board_size; row++)
+            for (int col = 0; col < board_size; col++)
+                if (!squareIsEmpty(row, col)) board.storePlay(row, col, symbolAt(row, col));
+        return board;
+    }
+
+    /* This method checks if a grid position is empty.
+     * @param row the row number to check for availability.
+     * @param col the column number to check for availability.
+     * @return true if the position (row, col) is available, false otherwise.
+     */
+    public boolean squareIsEmpty(int row, int col) {
+        return symbolAt(row, col) == ' ';
+    }
+
+    /* This method determines whether 'X' or 'O' is a winner.
+     * @param symbol is either 'X' or 'O'.
+     * @returns true if the player ('X' or 'O') is a winner, false otherwise.
+     */
+    public boolean wins(char symbol) {
+        if (inline < 1) return false;
+        if (small) return smallWins(symbol == 'X' ? xBits : oBits);
+        return largeWins(symbol == 'X' ? xRows : oRows);
+    }
+
+    /* This method determines if the current game outcome is a draw.
+     * A draw is defined by two conditions: no spot is available AND no winner.
+     * @return true if the outcome of the current game is a draw, false otherwise.
+     */
+    public boolean isDraw() {
+        return (emptySquares() == 0 && !(wins('X') || wins('O')));
+    }
+
+    /* This method decides on a score for the current game board,
+     * with the same scheme as nk_TicTacToe.evalBoard():
+     * 3 computer ('O') wins, 2 draw, 1 undecided, 0 human ('X') wins.
+     * @return a score that obeys the above scheme.
+     */
+    public int evalBoard() {
+        int score = 1;
+        if (wins('O')) score = 3;
+        else if (wins('X')) score = 0;
+        else if (isDraw()) score = 2;
+        return score;
+    }
+
+    /* This method grades a position that is not decided yet, with the same
+     * weights as nk_TicTacToe.openLines(); see LineCounts.balance(). The symbols
+     * of every line in a group of lines are counted at once, in binary: bit k
+     * of a line's count is the bit of its start square in xPlanes[k].
+     * @return positive if the open lines favour the computer ('O'), negative
+     *    if they favour the human player ('X').
+     */
+    public int openLines() {
+        int balance = 0;
+        for (int d = 0; d < 4; d++)
+            for (int r = 0; r < groups(d); r++) {
+                if ((symbols('X', d, r) | symbols('O', d, r)) == 0) continue;  // only empty lines
+                long starts = starts(d);
+                for (int k = 0; k < xPlanes.length; k++) xPlanes[k] = oPlanes[k] = 0;
+                for (int i = 0; i < inline; i++) {
+                    add(xPlanes, along('X', d, r, i) & starts);
+                    add(oPlanes, along('O', d, r, i) & starts);
+                }
+                long noX = starts, noO = starts;
+                for (int k = 0; k < xPlanes.length; k++) {
+                    noX &= ~xPlanes[k];
+                    noO &= ~oPlanes[k];
+                }
+                for (int c = 1; c <= inline; c++) {
+                    int weight = 1 << Math.min(2 * (c - 1), 24);
+                    balance += weight * Long.bitCount(noX & count(oPlanes, c));
+                    balance -= weight * Long.bitCount(noO & count(xPlanes, c));
+                }
+            }
+        return balance;
+    }
+
+    /* This method finds the squares where a player would win at once: the empty
+     * square of every line that holds inline - 1 of the player's symbols and none
+     * of the opponent's, with the symbols counted as in openLines().
+     * @param symbol is either 'X' or 'O'.
+     * @param squares receives distinct winning squares, row * board_size + col,
+     *    at most squares.length of them.
+     * @return the number of squares stored in squares.
+     */
+    public int winningSquares(char symbol, int[] squares) {
+        char opponent = (symbol == 'X') ? 'O' : 'X';
+        int found = 0;
+        for (int d = 0; d < 4; d++)
+            for (int r = 0; r < groups(d); r++) {
+                if (inline > 1 && symbols(symbol, d, r) == 0) continue;  // no line lacks one symbol
+                long starts = starts(d);
+                long blocked = 0;
+                for (int k = 0; k < xPlanes.length; k++) xPlanes[k] = 0;
+                for (int i = 0; i < inline; i++) {
+                    add(xPlanes, along(symbol, d, r, i) & starts);
+                    blocked |= along(opponent, d, r, i);
+                }
+                long lines = count(xPlanes, inline - 1) & starts & ~blocked;
+                for (int j = 0; lines != 0 && j < inline; j++)
+                    for (long m = lines & along(' ', d, r, j); m != 0; m &= m - 1) {
+                        int square = hole(d, r, Long.numberOfTrailingZeros(m), j);
+                        int k = 0;
+                        while (k < found && squares[k] != square) k++;
+                        if (k == found) {
+                            squares[found++] = square;
+                            if (found == squares.length) return found;
+                        }
+                    }
+            }
+        return found;
+    }
+
+    /* Helper Method
+     * @return the number of empty squares on the board.
+     */
+    private int emptySquares() {
+        if (small) return board_size * board_size - Long.bitCount(xBits | oBits);
+        int occupied = 0;
+        for (int row = 0; row < board_size; row++) occupied += Long.bitCount(xRows[row] | oRows[row]);
+        return board_size * board_size - occupied;
+    }
+
+    /* Helper Method
+     * This method computes the Zobrist keys of the gameboard and of its 7
+     * symmetric images into keys.
+     */
+    private void symmetricKeys() {
+        for (int sym = 0; sym < Zobrist.SYMMETRIES; sym++) keys[sym] = 0;
+        for (int row = 0; row < board_size; row++)
+            for (int col = 0; col < board_size; col++) {
+                char symbol = symbolAt(row, col);
+                if (symbol != ' ') zobrist.update(keys, row * board_size + col, ' ', symbol);
+            }
+    }
+
+    /* Helper Method
+     * Lines are handled in groups whose start squares share one word: on a small
+     * board all the lines of a direction, on a large board the lines of a direction
+     * starting on the same row.
+     * @param d a direction: right, down, down-right or down-left.
+     * @return the number of groups of lines in the direction.
+     */
+    private int groups(int d) {
+        if (small) return 1;
+        return (d == 0) ? board_size : Math.max(board_size - inline + 1, 0);
+    }
+
+    /* Helper Method
+     * @param d a direction: right, down, down-right or down-left.
+     * @return the bits of the squares where a line in the direction fits, in the
+     *    word of a group.
+     */
+    private long starts(int d) {
+        if (small) return startMasks[d];
+        if (d == 1) return allSquares;
+        return (d == 3) ? leftStarts : rightStarts;
+    }
+
+    /* Helper Method
+     * @param symbol 'X', 'O' or ' ' for the empty squares.
+     * @param d a direction: right, down, down-right or down-left.
+     * @param r a group of lines in the direction.
+     * @param i a position on the lines, 0 to inline - 1.
+     * @return the squares holding the symbol, shifted so that each is on the bit
+     *    of the start square of the line whose position i it is.
+     */
+    private long along(char symbol, int d, int r, int i) {
+        if (small) return word(symbol, xBits, oBits) >>> (SHIFTS[d] * i);
+        if (d == 0) return word(symbol, xRows[r], oRows[r]) >>> i;
+        long row = word(symbol, xRows[r + i], oRows[r + i]);
+        if (d == 1) return row;
+        return (d == 2) ? row >>> i : row << i;
+    }
+
+    /* Helper Method
+     * @param symbol 'X' or 'O'.
+     * @param d a direction: right, down, down-right or down-left.
+     * @param r a group of lines in the direction.
+     * @return zero exactly when no square of the lines of the group holds the symbol.
+     */
+    private long symbols(char symbol, int d, int r) {
+        if (small) return word(symbol, xBits, oBits);
+        if (d == 0) return word(symbol, xRows[r], oRows[r]);
+        long bits = 0;
+        for (int i = 0; i < inline; i++) bits |= word(symbol, xRows[r + i], oRows[r + i]);
+        return bits;
+    }
+
+    /* Helper Method
+     * @param symbol 'X', 'O' or ' '.
+     * @param x the squares of 'X' in a word.
+     * @param o the squares of 'O' in the same word.
+     * @return the squares of the word holding the symbol.
+     */
+    private long word(char symbol, long x, long o) {
+        if (symbol == 'X') return x;
+        if (symbol == 'O') return o;
+        return ~(x | o) & allSquares;
+    }
+
+    /* Helper Method
+     * @param d a direction: right, down, down-right or down-left.
+     * @param r the group of the line.
+     * @param start the bit of the start square of the line in the word of the group.
+     * @param j a position on the line.
+     * @return the square at position j of the line, row * board_size + col.
+     */
+    private int hole(int d, int r, int start, int j) {
+        if (small) {
+            int bit = start + SHIFTS[d] * j;
+            return (bit >> 3) * board_size + (bit & 7);
+        }
+        int row = (d == 0) ? r : r + j;
+        int col = (d == 1) ? start : (d == 3) ? start - j : start + j;
+        return row * board_size + col;
+    }
+
+    /* Helper Method
+     * Adds one to the count of every line whose bit is set, the counts being
+     * held in binary across the planes.
+     * @param planes planes[k] holds bit k of the counts.
+     * @param bits the lines to count.
+     */
+    private static void add(long[] planes, long bits) {
+        for (int k = 0; bits != 0 && k < planes.length; k++) {
+            long carry = planes[k] & bits;
+            planes[k] ^= bits;
+            bits = carry;
+        }
+    }
+
+    /* Helper Method
+     * @param planes planes[k] holds bit k of the counts.
+     * @param c a count.
+     * @return the lines whose count is c.
+     */
+    private static long count(long[] planes, int c) {
+        long m = -1L;
+        for (int k = 0; k < planes.length; k++) m &= ((c >> k & 1) != 0) ? planes[k] : ~planes[k];
+        return m;
+    }
+
+    /* Helper Method
+     * @param row the row of the square.
+     * @param col the column of the square.
+     * @return the symbol on the square: 'X', 'O' or ' '.
+     */
+    private char symbolAt(int row, int col) {
+        long x, o, bit;
+        if (small) {
+            bit = 1L << (row * 8 + col);
+            x = xBits;
+            o = oBits;
+        }
+        else {
+            bit = 1L << col;
+            x = xRows[row];
+            o = oRows[row];
+        }
+        if ((x & bit) != 0) return 'X';
+        if ((o & bit) != 0) return 'O';
+        return ' ';
+    }
+
+    /* Helper Method
+     * Bit p of the AND of b >>> (s * i) for i < inline is set exactly when the
+     * squares p, p + s, ..., p + (inline - 1) * s all belong to the player.
+     * Masking with the start squares discards lines that wrap around the board.
+     * @param b the squares of one player on a small board.
+     * @return true if the player has a line of 'inline' symbols.
+     */
+    private boolean smallWins(long b) {
+        for (int d = 0; d < 4; d++) {
+            long m = b & startMasks[d];
+            for (int i = 1; m != 0 && i < inline; i++) m &= b >>> (SHIFTS[d] * i);
+            if (m != 0) return true;
+        }
+        return false;
+    }
+
+    /* Helper Method
+     * The same shift-and-AND test on a board stored one word per row.
+     * @param rows the squares of one player, by row.
+     * @return true if the player has a line of 'inline' symbols.
+     */
+    private boolean largeWins(long[] rows) {
+        /* Rows */
+        for (int r = 0; r < board_size; r++) {
+            long m = rows[r] & rightStarts;
+            for (int i = 1; m != 0 && i < inline; i++) m &= rows[r] >>> i;
+            if (m != 0) return true;
+        }
+        for (int r = 0; r + inline <= board_size; r++) {
+            /* Columns */
+            long m = rows[r];
+            for (int i = 1; m != 0 && i < inline; i++) m &= rows[r + i];
+            if (m != 0) return true;
+
+            /* Down-right diagonals */
+            m = rows[r] & rightStarts;
+            for (int i = 1; m != 0 && i < inline; i++) m &= rows[r + i] >>> i;
+            if (m != 0) return true;
+
+            /* Down-left diagonals */
+            m = rows[r] & leftStarts;
+            for (int i = 1; m != 0 && i < inline; i++) m &= rows[r + i] << i;
+            if (m != 0) return true;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,432 @@
+/* This class implements the Dictionary ADT in a fixed amount of memory.
+ * The table is a fixed number of buckets of WAYS slots each, and a Record
+ * can only be stored in the bucket its configuration hashes to. Once that
+ * bucket is full, the replacement policy chooses which Record is evicted,
+ * or whether the new Record is dropped instead:
+ *   DEPTH_PREFERRED  evict the Record searched to the shallowest depth,
+ *                    unless the new Record is shallower still.
+ *   ALWAYS_REPLACE   always store the new Record, evicting the oldest.
+ *   TWO_TIER         half of the bucket is depth-preferred, the other half
+ *                    always-replace and takes what the first half evicts.
+ *   CLOCK            evict the first Record not read since the clock hand
+ *                    last passed it, an approximation of least recently used.
+ * A get() may therefore miss a configuration that was inserted.
+ * A PackedKey takes a slot like a Record, with depth 0, but its words are
+ * kept in a parallel long array in place of a String, and compared word by
+ * word. A Record is found by either kind of key; the other kind is only
+ * looked at once the dictionary holds some of it.
+ */
+public class BoundedDictionary implements DictionaryADT {
+    public static final int DEPTH_PREFERRED = 0;
+    public static final int ALWAYS_REPLACE = 1;
+    public static final int TWO_TIER = 2;
+    public static final int CLOCK = 3;
+    public static final int WAYS = 4; // the slots of a bucket.
+    private static final String PACKED = new String("packed"); // marks a slot holding a packed key.
+
+    private String[] keys;      // the configurations, null marks an empty slot and PACKED a packed key.
+    private long[] words;       // the words of the packed key of slot i start at words[packedWords * i].
+    private int packedSquares;  // the squares of the packed keys, set by the first one inserted.
+    private int packedWords;    // the words of a packed key.
+    private int numPacked;      // the number of slots holding a packed key.
+    private int[] scores;       // scores[i] is the score associated with keys[i].
+    private int[] depths;       // depths[i] is the depth keys[i] was searched to.
+    private boolean[] referenced; // true if keys[i] was read since the clock hand passed it.
+    private byte[] hands;       // hands[b] is the next slot of bucket b to replace.
+    private int mask;           // the number of buckets - 1, a power of two.
+    private int policy;
+    private int numRecords;
+
+    private long hits, misses;  // calls to get() that found, or did not find, the configuration.
+    private long evictions;     // Records evicted to make room for another.
+    private long drops;         // Records not stored since the policy kept the bucket as it was.
+    private long keyBytes;      // the estimated memory used by the stored configuration Strings.
+
+    /* Class Constructor
+     * @param capacity the maximum number of records, rounded up to a power of two
+     *    number of buckets.
+     * @param policy DEPTH_PREFERRED, ALWAYS_REPLACE, TWO_TIER or CLOCK.
+     * @throws DictionaryException if capacity is not positive or the policy is unknown.
+     */
+    public BoundedDictionary(int capacity, int policy) {
+        if (capacity <= 0 || policy < DEPTH_PREFERRED || policy > CLOCK) throw new DictionaryException();
+        int buckets = 1;
+        while (buckets * WAYS < capacity) buckets <<= 1;
+        this.policy = policy;
+        mask = buckets - 1;
+        keys = new String[buckets * WAYS];
+        scores = new int[buckets * WAYS];
+        depths = new int[buckets * WAYS];
+        referenced = new boolean[buckets * WAYS];
+        hands = new byte[buckets];
+    }
+
+    /* Mutator Method
+     * This method stores the Record in an empty slot of its bucket, or else in
+     * the slot chosen by the replacement policy.
+     * @param pair a Record instance containing configuration, score and depth.
+     * @return 0 if the Record was stored in an empty slot, 1 if a Record was
+     *    evicted or the new Record was dropped.
+     * @throws DictionaryException if the configuration is already in the dictionary.
+     */
+    public int insert(Record pair) throws DictionaryException {
+        String config = pair.getConfig();
+        if (numPacked > 0) {
+            PackedKey key = PackedTable.keyOf(config, packedSquares);
+            if (key != null && findPacked(key) != -1) throw new DictionaryException();
+        }
+        return place(bucketOf(config), config, null, pair.getScore(), pair.getDepth());
+    }
+
+    /* Mutator Method
+     * The key's words are stored in the slot, without a String, with depth 0.
+     * @param key the packed configuration to store.
+     * @param score the score associated with the configuration.
+     * @return 0 if the key was stored in an empty slot, 1 if a Record was
+     *    evicted or the key was dropped.
+     * @throws DictionaryException if the configuration is already in the dictionary.
+     * @throws IllegalArgumentException if the key is for a board of another size
+     *    than the packed keys already stored.
+     */
+    public int insert(PackedKey key, int score) throws DictionaryException {
+        if (words == null) {
+            packedSquares = key.squares();
+            packedWords = PackedKey.wordsFor(packedSquares);
+            words = new long[keys.length * packedWords];
+        }
+        else if (key.squares() != packedSquares)
+            throw new IllegalArgumentException("a " + key.squares() + " square key among keys of " + packedSquares);
+        if (numRecords > numPacked && find(key.toConfig()) != -1) throw new DictionaryException();
+        return place(bucketOf(key), null, key, score, 0);
+    }
+
+    /* Helper Method
+     * This method stores a configuration, given either as a String or as a
+     * packed key, in an empty slot of its bucket, or else in the slot chosen
+     * by the replacement policy.
+     * @param bucket the bucket of the configuration.
+     * @param config the configuration, or null if it is given as key.
+     * @param key the packed configuration, or null if it is given as config.
+     * @param score the score associated with the configuration.
+     * @param depth the depth the configuration was searched to.
+     * @return 0 if it was stored in an empty slot, 1 if a Record was evicted
+     *    or the new one was dropped.
+     * @throws DictionaryException if the configuration is already in the bucket.
+     */
+    private int place(int bucket, String config, PackedKey key, int score, int depth) throws DictionaryException {
+        int first = bucket * WAYS;
+        int free = -1;
+        for (int i = first; i < first + WAYS; i++) {
+            if (keys[i] == null) { if (free == -1) free = i; }
+            else if (matches(i, config, key)) throw new DictionaryException();
+        }
+        if (free != -1) {
+            store(free, config, key, score, depth);
+            return 0;
+        }
+
+        int slot;
+        switch (policy) {
+            case DEPTH_PREFERRED:
+                slot = shallowest(first, first + WAYS);
+                if (depths[slot] > depth) slot = -1;
+                break;
+            case TWO_TIER:
+                int half = first + WAYS / 2;
+                slot = shallowest(first, half);
+                int demoted = half + nextHand(bucket, WAYS / 2);
+                if (depths[slot] <= depth) {
+                    /* the evicted deep Record moves to the always-replace tier */
+                    evict(demoted);
+                    keys[demoted] = keys[slot];
+                    scores[demoted] = scores[slot];
+                    depths[demoted] = depths[slot];
+                    if (keys[slot] == PACKED)
+                        System.arraycopy(words, slot * packedWords, words, demoted * packedWords, packedWords);
+                    keys[slot] = null;
+                }
+                else slot = demoted;
+                break;
+            case CLOCK:
+                while (referenced[first + hands[bucket]]) {
+                    referenced[first + hands[bucket]] = false;
+                    nextHand(bucket, WAYS);
+                }
+                slot = first + nextHand(bucket, WAYS);
+                break;
+            default:
+                slot = first + nextHand(bucket, WAYS);
+        }
+        if (slot == -1) {
+            drops++;
+            return 1;
+        }
+        if (keys[slot] != null) evict(slot);
+        store(slot, config, key, score, depth);
+        return 1;
+    }
+
+    /* Mutator Method
+     * @param config the configuration to locate and remove.
+     * @throws DictionaryException if the configuration cannot be found.
+     */
+    public void remove(String config) throws DictionaryException {
+        int i = find(config);
+        if (i == -1 && numPacked > 0) {
+            PackedKey key = PackedTable.keyOf(config, packedSquares);
+            if (key != null) i = findPacked(key);
+        }
+        if (i == -1) throw new DictionaryException();
+        clear(i);
+    }
+
+    /* Mutator Method
+     * @param key the packed configuration to locate and remove.
+     * @throws DictionaryException if the configuration cannot be found.
+     */
+    public void remove(PackedKey key) throws DictionaryException {
+        int i = findPacked(key);
+        if (i == -1 && numRecords > numPacked) i = find(key.toConfig());
+        if (i == -1) throw new DictionaryException();
+        clear(i);
+    }
+
+    /* Accessor Method
+     * @param config is the key used in searching for the score.
+     * @return the score associated with the configuration, or -1 if not found.
+     */
+    public int get(String config) {
+        int i = find(config);
+        if (i == -1 && numPacked > 0) {
+            PackedKey key = PackedTable.keyOf(config, packedSquares);
+            if (key != null) i = findPacked(key);
+        }
+        return scoreAt(i);
+    }
+
+    /* Accessor Method
+     * @param key the packed configuration searched for.
+     * @return the score associated with the configuration, or -1 if not found.
+     */
+    public int get(PackedKey key) {
+        int i = findPacked(key);
+        if (i == -1 && numRecords > numPacked) i = find(key.toConfig());
+        return scoreAt(i);
+    }
+
+    /* Mutator Method
+     * This method inserts the Records one after the other with insert(); it
+     * does not batch their hashing or sort them by bucket.
+     * @param pairs the Records to insert, one after the other.
+     * @return the number of inserts that returned 1.
+     * @throws DictionaryException if an insert fails; the Records inserted before it remain.
+     */
+    public int insertAll(Record[] pairs) throws DictionaryException {
+        int count = 0;
+        for (int i = 0; i < pairs.length; i++) count += insert(pairs[i]);
+        return count;
+    }
+
+    /* Accessor Method
+     * This method looks up the configurations one after the other with get();
+     * it does not batch their hashing or sort them by bucket.
+     * @param configs the configurations to look up.
+     * @param scores receives in scores[i] the score of configs[i], or -1 if it is not found.
+     */
+    public void getAll(String[] configs, int[] scores) {
+        for (int i = 0; i < configs.length; i++) scores[i] = get(configs[i]);
+    }
+
+    /* Accessor Method
+     * @return the number of Record instances in the Dictionary.
+     */
+    public int numElements() {
+        return numRecords;
+    }
+
+    /* Accessor Method
+     * @return the maximum number of Records the dictionary holds.
+     */
+    public int capacity() {
+        return keys.length;
+    }
+
+    /* Accessor Method
+     * @return the fraction of calls to get() that found the configuration, or 0 if none were made.
+     */
+    public double hitRate() {
+        return (hits + misses == 0) ? 0 : (double) hits / (hits + misses);
+    }
+
+    /* Accessor Method
+     * @return the number of Records evicted to make room for others.
+     */
+    public long numEvictions() {
+        return evictions;
+    }
+
+    /* Accessor Method
+     * @return the number of inserted Records the policy did not store.
+     */
+    public long numDrops() {
+        return drops;
+    }
+
+    /* Accessor Method
+     * The estimate counts the arrays of the table, which never grow, and the
+     * stored Strings at 2 bytes per char with 8-byte alignment and compressed
+     * references. Packed keys cost only the words array, made by the first one.
+     * @return the estimated number of bytes held by the dictionary.
+     */
+    public long residentBytes() {
+        long slots = keys.length;
+        return 16 + slots * 4        // keys
+             + 2 * (16 + slots * 4)  // scores and depths
+             + 16 + slots            // referenced
+             + 16 + hands.length     // hands
+             + ((words == null) ? 0 : 16 + 8L * words.length)
+             + keyBytes;
+    }
+
+    /* Helper Method
+     * @param config the configuration to hash.
+     * @return the bucket the configuration is stored in.
+     */
+    private int bucketOf(String config) {
+        int h = config.hashCode() * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & mask;
+    }
+
+    /* Helper Method
+     * @param key the packed configuration to hash, whose hash code is already mixed.
+     * @return the bucket the key is stored in.
+     */
+    private int bucketOf(PackedKey key) {
+        return key.hashCode() & mask;
+    }
+
+    /* Helper Method
+     * @param config the configuration to search for.
+     * @return the slot holding the configuration String, or -1 if not found.
+     */
+    private int find(String config) {
+        int first = bucketOf(config) * WAYS;
+        for (int i = first; i < first + WAYS; i++)
+            if (keys[i] != null && keys[i] != PACKED && keys[i].equals(config)) return i;
+        return -1;
+    }
+
+    /* Helper Method
+     * @param key the packed configuration to search for.
+     * @return the slot holding the packed key, or -1 if not found.
+     */
+    private int findPacked(PackedKey key) {
+        if (numPacked == 0 || key.squares() != packedSquares) return -1;
+        int first = bucketOf(key) * WAYS;
+        for (int i = first; i < first + WAYS; i++)
+            if (matches(i, null, key)) return i;
+        return -1;
+    }
+
+    /* Helper Method
+     * @param i an occupied slot.
+     * @param config a configuration, or null if it is given as key.
+     * @param key a packed configuration of the size of the stored ones, or null
+     *    if it is given as config.
+     * @return true if slot i holds the configuration in the same form.
+     */
+    private boolean matches(int i, String config, PackedKey key) {
+        if (key == null) return keys[i] != PACKED && keys[i].equals(config);
+        if (keys[i] != PACKED) return false;
+        int first = i * packedWords;
+        for (int w = 0; w < packedWords; w++) if (words[first + w] != key.word(w)) return false;
+        return true;
+    }
+
+    /* Helper Method
+     * @param i the slot found by a get(), or -1 if it found nothing.
+     * @return the score in the slot, or -1; the hit or miss is counted.
+     */
+    private int scoreAt(int i) {
+        if (i == -1) {
+            misses++;
+            return -1;
+        }
+        hits++;
+        referenced[i] = true;
+        return scores[i];
+    }
+
+    /* Helper Method
+     * @param from the first slot to consider.
+     * @param to the slot after the last one to consider.
+     * @return the slot in [from, to) holding the Record with the smallest depth.
+     */
+    private int shallowest(int from, int to) {
+        int slot = from;
+        for (int i = from + 1; i < to; i++) if (depths[i] < depths[slot]) slot = i;
+        return slot;
+    }
+
+    /* Helper Method
+     * @param bucket a bucket of the table.
+     * @param ways the number of slots the hand goes round.
+     * @return the slot, relative to the start of its range, the hand pointed to before it moved on.
+     */
+    private int nextHand(int bucket, int ways) {
+        int hand = hands[bucket] % ways;
+        hands[bucket] = (byte) ((hand + 1) % ways);
+        return hand;
+    }
+
+    /* Helper Method
+     * @param slot a slot holding a Record, which is discarded.
+     */
+    private void evict(int slot) {
+        if (keys[slot] == null) return;
+        clear(slot);
+        evictions++;
+    }
+
+    /* Helper Method
+     * @param slot a slot holding a Record or a packed key, which is emptied.
+     */
+    private void clear(int slot) {
+        if (keys[slot] == PACKED) numPacked--;
+        else keyBytes -= stringBytes(keys[slot]);
+        keys[slot] = null;
+        numRecords--;
+    }
+
+    /* Helper Method
+     * @param slot an empty slot.
+     * @param config the configuration to store in it, or null to store key.
+     * @param key the packed configuration to store in it, or null to store config.
+     * @param score the score associated with the configuration.
+     * @param depth the depth the configuration was searched to.
+     */
+    private void store(int slot, String config, PackedKey key, int score, int depth) {
+        if (key == null) {
+            keys[slot] = config;
+            keyBytes += stringBytes(config);
+        }
+        else {
+            keys[slot] = PACKED;
+            int first = slot * packedWords;
+            for (int w = 0; w < packedWords; w++) words[first + w] = key.word(w);
+            numPacked++;
+        }
+        scores[slot] = score;
+        depths[slot] = depth;
+        referenced[slot] = true;
+        numRecords++;
+    }
+
+    /* Helper Method
+     * @param s a String.
+     * @return the estimated bytes of the String and its char array.
+     */
+    private static long stringBytes(String s) {
+        return 24 + ((16 + 2L * s.length() + 7) & ~7L);
+    }
+}
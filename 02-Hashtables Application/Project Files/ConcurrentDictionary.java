@@ -0,0 +1,342 @@
+import java.util.Arrays;
+
+/* This class implements the Dictionary ADT for use by several threads at
+ * once. The table is split into stripes, each a separately locked hashtable
+ * with separate chaining that grows on its own, so threads working on
+ * different stripes never wait for each other and no operation takes a
+ * global lock. A configuration's stripe is chosen by the high bits of its
+ * mixed hash code and its bucket by the low bits.
+ *
+ * In lossy mode every bucket holds at most one Record and the table never
+ * grows: an insert always replaces whatever the bucket held, like a
+ * transposition table. get() may then miss a configuration that was
+ * inserted, but memory use is fixed and insert never throws.
+ *
+ * PackedKeys are not chained: each stripe keeps their words apart in a
+ * PackedTable, so they are stored and compared without a String. A Record
+ * is found by either kind of key; the other kind is only looked at once
+ * the dictionary holds some of it, and then the two lookups are not atomic.
+ */
+public class ConcurrentDictionary implements DictionaryADT {
+    public static final int DEFAULT_STRIPES = 64;
+    private static final int MIN_BUCKETS = 16; // buckets of a stripe, at least.
+
+    private Stripe[] stripes;
+    private int stripeShift; // 32 - log2(number of stripes).
+    private boolean lossy;   // true to replace on every insert instead of chaining.
+    private volatile boolean hasConfigs;  // true once a configuration String was inserted.
+    private volatile int packedSquares;   // the squares of the packed keys inserted, 0 before the first.
+
+    /* Class Constructor
+     * @param size the expected number of records.
+     */
+    public ConcurrentDictionary(int size) {
+        this(size, DEFAULT_STRIPES, false);
+    }
+
+    /* Class Constructor
+     * @param size the expected number of records; in lossy mode, the number of
+     *    buckets, rounded up to a power of two.
+     * @param stripes the number of independently locked stripes, rounded up to a power of two.
+     * @param lossy true to keep at most one Record per bucket, replacing on every insert.
+     * @throws DictionaryException if size or stripes is not positive.
+     */
+    public ConcurrentDictionary(int size, int stripes, boolean lossy) {
+        if (size <= 0 || stripes <= 0) throw new DictionaryException();
+        int count = 1;
+        while (count < stripes) count <<= 1;
+        this.lossy = lossy;
+        stripeShift = 32 - Integer.numberOfTrailingZeros(count);
+        int buckets = MIN_BUCKETS;
+        while (buckets * count < (lossy ? size : size * 4 / 3)) buckets <<= 1;
+        this.stripes = new Stripe[count];
+        for (int i = 0; i < count; i++) this.stripes[i] = new Stripe(buckets);
+    }
+
+    /* Mutator Method
+     * @param pair a Record instance containing configuration and score.
+     * @return 0 if the bucket was empty, 1 otherwise. In lossy mode 1 means
+     *    the Record replaced another one.
+     * @throws DictionaryException if the configuration already exists in the
+     *    dictionary and it is not lossy.
+     */
+    public int insert(Record pair) throws DictionaryException {
+        if (!lossy && packedScore(pair.getConfig()) != -1) throw new DictionaryException();
+        hasConfigs = true;
+        int h = hash(pair.getConfig());
+        return stripeOf(h).insert(pair.getConfig(), pair.getScore(), h, lossy);
+    }
+
+    /* Mutator Method
+     * The key's words are stored in the packed table of its stripe, not chained.
+     * @param key the packed configuration to store.
+     * @param score the score associated with the configuration.
+     * @return 0 if the home slot was empty, 1 otherwise. In lossy mode 1 means
+     *    the key replaced another one.
+     * @throws DictionaryException if the configuration already exists in the
+     *    dictionary and it is not lossy.
+     * @throws IllegalArgumentException if the key is for a board of another size
+     *    than the packed keys already stored.
+     */
+    public int insert(PackedKey key, int score) throws DictionaryException {
+        if (!lossy && hasConfigs && configScore(key.toConfig()) != -1) throw new DictionaryException();
+        if (key.squares() != packedSquares(key.squares()))
+            throw new IllegalArgumentException("a " + key.squares() + " square key among keys of " + packedSquares);
+        return stripeOf(key.hashCode()).insert(key, score, lossy);
+    }
+
+    /* Mutator Method
+     * This method inserts many Records grouped by stripe, so each
+     * stripe's lock and table are visited in one run.
+     * @param pairs the Records to insert.
+     * @return the number of Records that landed on an occupied bucket.
+     * @throws DictionaryException if a configuration already exists in the dictionary
+     *    and it is not lossy. The Records before it in stripe order remain,
+     *    so which of the others were inserted is unspecified.
+     */
+    public int insertAll(Record[] pairs) throws DictionaryException {
+        if (pairs.length > 0) hasConfigs = true;
+        long[] order = new long[pairs.length];
+        for (int i = 0; i < pairs.length; i++)
+            order[i] = ((hash(pairs[i].getConfig()) & 0xFFFFFFFFL) << 32) | i;
+        Arrays.sort(order);
+        int collided = 0;
+        for (int i = 0; i < order.length; i++) {
+            int h = (int) (order[i] >>> 32);
+            Record pair = pairs[(int) order[i]];
+            if (!lossy && packedScore(pair.getConfig()) != -1) throw new DictionaryException();
+            collided += stripeOf(h).insert(pair.getConfig(), pair.getScore(), h, lossy);
+        }
+        return collided;
+    }
+
+    /* Mutator Method
+     * @param config the configuration to locate and remove.
+     * @throws DictionaryException if the configuration cannot be found.
+     */
+    public void remove(String config) throws DictionaryException {
+        int h = hash(config);
+        if (stripeOf(h).remove(config, h)) return;
+        PackedKey key = packedKey(config);
+        if (key == null || !stripeOf(key.hashCode()).remove(key)) throw new DictionaryException();
+    }
+
+    /* Mutator Method
+     * @param key the packed configuration to locate and remove.
+     * @throws DictionaryException if the configuration cannot be found.
+     */
+    public void remove(PackedKey key) throws DictionaryException {
+        if (stripeOf(key.hashCode()).remove(key)) return;
+        if (!hasConfigs) throw new DictionaryException();
+        String config = key.toConfig();
+        int h = hash(config);
+        if (!stripeOf(h).remove(config, h)) throw new DictionaryException();
+    }
+
+    /* Accessor Method
+     * @param config is the key used in searching for the score.
+     * @return the score associated with the configuration, or -1 if not found.
+     */
+    public int get(String config) {
+        int score = configScore(config);
+        return (score == -1) ? packedScore(config) : score;
+    }
+
+    /* Accessor Method
+     * @param key the packed configuration searched for.
+     * @return the score associated with the configuration, or -1 if not found.
+     */
+    public int get(PackedKey key) {
+        int score = stripeOf(key.hashCode()).get(key);
+        if (score != -1 || !hasConfigs) return score;
+        return configScore(key.toConfig());
+    }
+
+    /* Accessor Method
+     * This method looks up many configurations grouped by stripe.
+     * @param configs the configurations to look up.
+     * @param scores receives in scores[i] the score of configs[i], or -1 if it is not found.
+     */
+    public void getAll(String[] configs, int[] scores) {
+        long[] order = new long[configs.length];
+        for (int i = 0; i < configs.length; i++)
+            order[i] = ((hash(configs[i]) & 0xFFFFFFFFL) << 32) | i;
+        Arrays.sort(order);
+        for (int i = 0; i < order.length; i++) {
+            int h = (int) (order[i] >>> 32);
+            int k = (int) order[i];
+            scores[k] = stripeOf(h).get(configs[k], h);
+            if (scores[k] == -1) scores[k] = packedScore(configs[k]);
+        }
+    }
+
+    /* Accessor Method
+     * The stripes are counted one after the other, so while other threads
+     * insert or remove the result is only approximate.
+     * @return the number of Record instances in the Dictionary.
+     */
+    public int numElements() {
+        int count = 0;
+        for (int i = 0; i < stripes.length; i++) count += stripes[i].count;
+        return count;
+    }
+
+    /* Accessor Method
+     * @return true if inserts replace Records instead of chaining them.
+     */
+    public boolean isLossy() {
+        return lossy;
+    }
+
+    /* Helper Method
+     * @param config a configuration.
+     * @return the score chained under the configuration String, or -1 if not found.
+     */
+    private int configScore(String config) {
+        int h = hash(config);
+        return stripeOf(h).get(config, h);
+    }
+
+    /* Helper Method
+     * @param config a configuration.
+     * @return the packed key of the configuration, or null if no packed key was
+     *    inserted yet or the configuration cannot be packed like them.
+     */
+    private PackedKey packedKey(String config) {
+        int squares = packedSquares;
+        return (squares == 0) ? null : PackedTable.keyOf(config, squares);
+    }
+
+    /* Helper Method
+     * @param config a configuration.
+     * @return the score stored under the packed key of the configuration, or -1 if not found.
+     */
+    private int packedScore(String config) {
+        PackedKey key = packedKey(config);
+        return (key == null) ? -1 : stripeOf(key.hashCode()).get(key);
+    }
+
+    /* Helper Method
+     * The first packed key inserted sets the size of every packed key.
+     * @param squares the squares of a packed key being inserted.
+     * @return the squares of the packed keys of the dictionary.
+     */
+    private synchronized int packedSquares(int squares) {
+        if (packedSquares == 0) packedSquares = squares;
+        return packedSquares;
+    }
+
+    /* Helper Method
+     * @param config the configuration to hash.
+     * @return the mixed hash code of the configuration.
+     */
+    private static int hash(String config) {
+        int h = config.hashCode() * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    /* Helper Method
+     * @param h a mixed hash code.
+     * @return the stripe holding configurations with this hash code.
+     */
+    private Stripe stripeOf(int h) {
+        return stripes[stripeShift == 32 ? 0 : h >>> stripeShift];
+    }
+
+    /* A chained Record of a stripe. */
+    private static class Node {
+        final String config;
+        final int hash;
+        int score;
+        Node next;
+
+        Node(String config, int hash, int score, Node next) {
+            this.config = config;
+            this.hash = hash;
+            this.score = score;
+            this.next = next;
+        }
+    }
+
+    /* One stripe: a hashtable with separate chaining and a table of packed keys,
+     * guarded by its own lock. */
+    private static class Stripe {
+        private Node[] table;
+        private PackedTable packed; // made by the first packed key inserted.
+        volatile int count;   // read without the lock by numElements().
+
+        Stripe(int buckets) {
+            table = new Node[buckets];
+        }
+
+        synchronized int insert(String config, int score, int h, boolean lossy) {
+            int i = h & (table.length - 1);
+            Node head = table[i];
+            if (lossy) {
+                if (head == null) count++;
+                table[i] = new Node(config, h, score, null);
+                return (head == null) ? 0 : 1;
+            }
+            for (Node node = head; node != null; node = node.next)
+                if (node.hash == h && node.config.equals(config)) throw new DictionaryException();
+            table[i] = new Node(config, h, score, head);
+            count++;
+            if (count > table.length * 3 / 4) resize();
+            return (head == null) ? 0 : 1;
+        }
+
+        synchronized int insert(PackedKey key, int score, boolean lossy) {
+            if (packed == null) packed = new PackedTable(key.squares(), lossy ? table.length : MIN_BUCKETS, lossy);
+            int before = packed.size();
+            int collided = packed.insert(key, score);
+            count += packed.size() - before;
+            return collided;
+        }
+
+        synchronized boolean remove(PackedKey key) {
+            if (packed == null || !packed.remove(key)) return false;
+            count--;
+            return true;
+        }
+
+        synchronized int get(PackedKey key) {
+            return (packed == null) ? -1 : packed.get(key);
+        }
+
+        synchronized boolean remove(String config, int h) {
+            int i = h & (table.length - 1);
+            Node previous = null;
+            for (Node node = table[i]; node != null; previous = node, node = node.next) {
+                if (node.hash == h && node.config.equals(config)) {
+                    if (previous == null) table[i] = node.next;
+                    else previous.next = node.next;
+                    count--;
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        synchronized int get(String config, int h) {
+            for (Node node = table[h & (table.length - 1)]; node != null; node = node.next)
+                if (node.hash == h && node.config.equals(config)) return node.score;
+            return -1;
+        }
+
+        /* Doubles the number of buckets; only called with the lock held. */
+        private void resize() {
+            Node[] old = table;
+            table = new Node[old.length << 1];
+            int mask = table.length - 1;
+            for (int b = 0; b < old.length; b++) {
+                Node node = old[b];
+                while (node != null) {
+                    Node next = node.next;
+                    node.next = table[node.hash & mask];
+                    table[node.hash & mask] = node;
+                    node = next;
+                }
+            }
+        }
+    }
+}
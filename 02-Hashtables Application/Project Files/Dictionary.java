@@ -1,34 +1,158 @@
 /* This class implements the Dictonary ADT,
  * and uses a hashtable with separate chaining.
+ * The table grows once the load factor is reached. Buckets are migrated
+ * to the larger table a few at a time on each insert, so no single insert
+ * pays for a full rehash. The hash function is pluggable, see HashFunction.
+ * PackedKeys are not chained: their words are kept apart in a PackedTable,
+ * so they are stored and compared without a String. A Record is found by
+ * either kind of key; the other kind is only looked at once the dictionary
+ * holds some of it.
  * @author Ali Al-Musawi
  */
+import java.util.Arrays;
+import java.util.Iterator;
 import java.util.LinkedList;
 public class Dictionary implements DictionaryADT {
+    public static final float DEFAULT_LOAD_FACTOR = 0.75f;
+    private static final int MIGRATION_STEP = 8; // buckets migrated per insert during a resize.
+
     private int size; // This is the size of the hashtable.
     private int numRecords; // This is the number of records stored in the dictionary.
     private LinkedList<Record>[] hashtable; // This is the table in which the Records are stored.
+    private float loadFactor; // The table grows when numRecords exceeds loadFactor * size.
+
+    private LinkedList<Record>[] oldTable; // The table being migrated, or null if no resize is in progress.
+    private int oldSize; // The size of oldTable.
+    private int migrated; // Buckets of oldTable below this index have been moved to hashtable.
+
+    private HashFunction hashFunction; // Maps configurations to positions on the table.
+    private long collisions; // The number of inserts that landed on an occupied bucket.
+    private PackedTable packed; // The packed keys and their scores, made by the first one inserted.
 
     /* Class Constructor
      * @param size the desired size of the dictionary.
      */
-    @SuppressWarnings("unchecked")
     public Dictionary(int size) {
+        this(size, DEFAULT_LOAD_FACTOR);
+    }
+
+    /* Class Constructor
+     * @param size the initial size of the dictionary.
+     * @param loadFactor the ratio of records to table size at which the table grows.
+     * @throws DictionaryException if size or loadFactor is not positive.
+     */
+    public Dictionary(int size, float loadFactor) {
+        this(size, loadFactor, new PolynomialHash(33));
+    }
+
+    /* Class Constructor
+     * @param size the initial size of the dictionary, which the hash function must
+     *    accept, e.g. a power of two for MaskHash; see HashFunction.tableSize().
+     *    The sizes the table grows to are chosen by the hash function.
+     * @param loadFactor the ratio of records to table size at which the table grows.
+     * @param hashFunction the function mapping configurations to positions.
+     * @throws DictionaryException if size or loadFactor is not positive.
+     */
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    public Dictionary(int size, float loadFactor, HashFunction hashFunction) {
+        if (size <= 0 || !(loadFactor > 0)) throw new DictionaryException();
+        this.hashFunction = hashFunction;
         this.size = size;
+        this.loadFactor = loadFactor;
         numRecords = 0;
-	hashtable = new LinkedList[size];
+	hashtable = new LinkedList[this.size];
     }
 
     /* Mutator Method
      * This method takes a Record instance's configuration, 
-     * and stores it in the hashtable using the helper method hashCode().
-     * The prime number 33 is used in this particular function.
+     * and stores it in the hashtable using the dictionary's hash function.
      * If a cell already has a configuration, the new one will be chained using a linked list.
      * @param pair a Record instance containing configuration and score.
      * @return 0 if no collision occurs, 1 otherwise.
      * @throws DictionaryException if a pair already exists in the dictionary.
      */
     public int insert(Record pair) throws DictionaryException {
-	int position = hashCode(pair.getConfig(), 33);
+        if (oldTable == null && numRecords >= loadFactor * size) startResize(hashFunction.tableSize(2 * size));
+        if (oldTable != null) migrate(MIGRATION_STEP);
+
+        if (findInOldTable(pair.getConfig()) != -1 || packedHolds(pair.getConfig())) throw new DictionaryException();
+        return insertAt(pair, hashFunction.hash(pair.getConfig(), size));
+    }
+
+    /* Mutator Method
+     * The key's words are stored in the packed table, not chained.
+     * @param key the packed configuration to store.
+     * @param score the score associated with the configuration.
+     * @return 0 if no collision occurs, 1 otherwise.
+     * @throws DictionaryException if the configuration already exists in the dictionary.
+     * @throws IllegalArgumentException if the key is for a board of another size
+     *    than the packed keys already stored.
+     */
+    public int insert(PackedKey key, int score) throws DictionaryException {
+        if (numRecords > 0 && chained(key.toConfig())) throw new DictionaryException();
+        if (packed == null) packed = new PackedTable(key.squares(), 16, false);
+        return packed.insert(key, score);
+    }
+
+    /* Mutator Method
+     * This method inserts many Records at once. The table is first grown to hold
+     * all of them, so no resize happens in between, then every configuration is
+     * hashed in one loop and the Records are inserted in the order of their
+     * buckets, which walks the table once from start to end.
+     * @param pairs the Records to insert.
+     * @return the number of Records chained onto an occupied bucket.
+     * @throws DictionaryException if a configuration already exists in the dictionary
+     *    or appears twice in pairs. The Records before it in bucket order remain,
+     *    so which of the others were inserted is unspecified.
+     */
+    public int insertAll(Record[] pairs) throws DictionaryException {
+        if (oldTable != null) migrate(oldSize);
+        if (numRecords + pairs.length >= loadFactor * size) {
+            startResize(hashFunction.tableSize((int) ((numRecords + pairs.length) / loadFactor) + 1));
+            migrate(oldSize);
+        }
+        long[] order = new long[pairs.length];
+        for (int i = 0; i < pairs.length; i++)
+            order[i] = ((long) hashFunction.hash(pairs[i].getConfig(), size) << 32) | i;
+        Arrays.sort(order);
+        int collided = 0;
+        for (int i = 0; i < order.length; i++) {
+            Record pair = pairs[(int) order[i]];
+            if (packedHolds(pair.getConfig())) throw new DictionaryException();
+            collided += insertAt(pair, (int) (order[i] >>> 32));
+        }
+        return collided;
+    }
+
+    /* Accessor Method
+     * This method looks up many configurations at once, hashing them in one loop
+     * and visiting their buckets in table order.
+     * @param configs the configurations to look up.
+     * @param scores receives in scores[i] the score of configs[i], or -1 if it is not found.
+     */
+    public void getAll(String[] configs, int[] scores) {
+        if (oldTable != null) {
+            for (int i = 0; i < configs.length; i++) scores[i] = get(configs[i]);
+            return;
+        }
+        long[] order = new long[configs.length];
+        for (int i = 0; i < configs.length; i++) order[i] = ((long) hashFunction.hash(configs[i], size) << 32) | i;
+        Arrays.sort(order);
+        for (int i = 0; i < order.length; i++) {
+            int k = (int) order[i];
+            scores[k] = scoreOf(hashtable[(int) (order[i] >>> 32)], configs[k]);
+            if (scores[k] == -1) scores[k] = packedScore(configs[k]);
+        }
+    }
+
+    /* Helper Method
+     * This method adds a Record to the current table.
+     * @param pair a Record whose configuration is not in the old table.
+     * @param position the position of the Record on the current table.
+     * @return 0 if no collision occurs, 1 otherwise.
+     * @throws DictionaryException if the configuration already exists in the bucket.
+     */
+    private int insertAt(Record pair, int position) throws DictionaryException {
 	if (hashtable[position] == null) {  // ensure the hashtable cell is empty
 	    hashtable[position] = new LinkedList<Record>();
 	    hashtable[position].add(pair);
@@ -36,30 +160,44 @@ public class Dictionary implements DictionaryADT {
 	    return 0;
 	}
 	else { // a collision is happening
-	    if (retrieveByKey(position, pair.getConfig()) != -1) throw new DictionaryException();
+	    if (retrieveByKey(hashtable[position], pair.getConfig()) != -1) throw new DictionaryException();
 	    else hashtable[position].add(pair);
             numRecords++;
+            collisions++;
 	    return 1;
 	}
     }
 
     /* Mutator Method
-     * This method searches for the Record's configuration using two helper methods.
-     * The prime 33 is supplied as an argument to the hashCode() method.
+     * This method searches for the Record's configuration using the hash function
+     * and the helper method retrieveByKey().
      * Once found, the configuration is deleted silently.
      * @param config the configuration to locate on the hashtable and remove.
      * @throws DictionaryException if the configuration cannot be found.
      */
     public void remove(String config) throws DictionaryException {
-        int position = hashCode(config, 33);
-        if (hashtable[position] != null && retrieveByKey(position, config) != -1) {
-            int positionInList = retrieveByKey(position, config);
-            hashtable[position].remove(positionInList);
-            numRecords--;
-            /* this ensures we do not count an empty list as a collision cause. */
-            if (hashtable[position].size() == 0) hashtable[position] = null;
-	}
-	else throw new DictionaryException();
+        int positionInList = findInOldTable(config);
+        if (positionInList != -1) {
+            removeFrom(oldTable, hashFunction.hash(config, oldSize), positionInList);
+            return;
+        }
+        int position = hashFunction.hash(config, size);
+        positionInList = retrieveByKey(hashtable[position], config);
+        if (positionInList != -1) removeFrom(hashtable, position, positionInList);
+	else {
+            PackedKey key = packedKey(config);
+            if (key == null || !packed.remove(key)) throw new DictionaryException();
+        }
+    }
+
+    /* Mutator Method
+     * @param key the packed configuration to locate and remove.
+     * @throws DictionaryException if the configuration cannot be found.
+     */
+    public void remove(PackedKey key) throws DictionaryException {
+        if (packed != null && packed.remove(key)) return;
+        if (numRecords == 0) throw new DictionaryException();
+        remove(key.toConfig());
     }
 
     /* Accessor Method
@@ -69,53 +207,231 @@ public class Dictionary implements DictionaryADT {
      * @return the score associated with the configuration, or -1 if not found.
      */
      public int get(String config) {
-         int position = hashCode(config, 33);
-         int positionInList = retrieveByKey(position, config);
+         int positionInList = findInOldTable(config);
+         if (positionInList != -1) {
+             return oldTable[hashFunction.hash(config, oldSize)].get(positionInList).getScore();
+         }
+         int position = hashFunction.hash(config, size);
+         positionInList = retrieveByKey(hashtable[position], config);
          if (positionInList != -1) {
              return hashtable[position].get(positionInList).getScore();
          }
-         else return -1;
+         else return packedScore(config);
      } 
 	
+
+    /* Accessor Method
+     * @param key is the packed configuration used in searching for the score.
+     * @return the score associated with the configuration, or -1 if not found.
+     */
+    public int get(PackedKey key) {
+        int score = (packed == null) ? -1 : packed.get(key);
+        if (score != -1 || numRecords == 0) return score;
+        return get(key.toConfig());
+    }
+
     /* Accessor Method
      * @return the number of Record instances in the Dictionary.
      */
     public int numElements() {
-        return numRecords;
+        return numRecords + ((packed == null) ? 0 : packed.size());
     }
 
-    /* Helper Method
-     * This is the hash function. It maps the configuration string of a Record instance
-     * to a position on the hashtable using a polynomial:
-     * p(x) = (int)'c_0' + (int)'c_1'*x + (int)'c_2'*x^2 + ... + (int)'c_n-1'*x^(n-1)
-     * Where each 'c_i' is the ith character of the configuration, and x is a prime number.
-     * To prevent overflow, we take modulo s (where s is the size of the table) at every term. 
-     * @param keyConfig the configuration of the Record instance
-     * @param prime the value of the prime number used in the polynomial.
-     * @return a position on the hashtable
+    /* Accessor Method
+     * @return the current size of the hashtable.
+     */
+    public int tableSize() {
+        return size;
+    }
+
+    /* Accessor Method
+     * @return the load factor at which the hashtable grows.
+     */
+    public float getLoadFactor() {
+        return loadFactor;
+    }
+
+    /* Accessor Method
+     * @return true if buckets are still being migrated to a larger table.
      */
-    private int hashCode(String keyConfig, int prime) {
-	    int n = keyConfig.length() - 1;
-	    int value = ((int) keyConfig.charAt(n));
-	    for(int i = n-1; i >= 0; i--) {
-	        value = (value*prime + ((int) keyConfig.charAt(i))) % size; 
-		}
-	    return (value % size);
+    public boolean isResizing() {
+        return oldTable != null;
     }
 
+    /* Accessor Method
+     * @return the number of inserts so far that were chained onto an occupied bucket.
+     */
+    public long numCollisions() {
+        return collisions;
+    }
+
+    /* Accessor Method
+     * @return the number of non-empty buckets, in both tables while a resize is in progress.
+     */
+    public int usedBuckets() {
+        return usedBuckets(hashtable) + usedBuckets(oldTable);
+    }
+
+    /* Accessor Method
+     * @return the length of the longest chain in the dictionary.
+     */
+    public int longestChain() {
+        return Math.max(longestChain(hashtable), longestChain(oldTable));
+    }
+
+    /* Accessor Method
+     * @return the average length of the non-empty chains, or 0 if the dictionary is empty.
+     */
+    public double averageChainLength() {
+        int used = usedBuckets();
+        return (used == 0) ? 0 : (double) numRecords / used;
+    }
 
     /* Helper Method
      * This method finds a Record instance in a chain of Records in a linked list.
-     * @param position the position of the linked list in the hashtable.
+     * The chain is walked once with an iterator, rather than with get(i) for every index.
+     * @param chain the linked list to search, possibly null.
      * @param keyConfig the key used to search for the sought Record.
      * @returns the index of the sought Record in the linked list, or -1 if not found.
      */
-     private int retrieveByKey(int position, String keyConfig) {
-    	 if (hashtable[position] != null) {
-             for(int i = 0; i < hashtable[position].size(); i++) {
-                 if (keyConfig.contentEquals(hashtable[position].get(i).getConfig())) return i;
-             }
-    	 }
-         return -1;
-      }
+    private int retrieveByKey(LinkedList<Record> chain, String keyConfig) {
+        if (chain != null) {
+            int i = 0;
+            for (Iterator<Record> it = chain.iterator(); it.hasNext(); i++) {
+                if (keyConfig.contentEquals(it.next().getConfig())) return i;
+            }
+        }
+        return -1;
+    }
+
+    /* Helper Method
+     * @param chain the linked list to search, possibly null.
+     * @param keyConfig the configuration searched for.
+     * @return the score of the Record with the configuration, or -1 if not found.
+     */
+    private static int scoreOf(LinkedList<Record> chain, String keyConfig) {
+        if (chain != null) {
+            for (Record pair : chain) {
+                if (keyConfig.contentEquals(pair.getConfig())) return pair.getScore();
+            }
+        }
+        return -1;
+    }
+
+    /* Helper Method
+     * @param keyConfig a configuration.
+     * @return true if the configuration is chained in either table.
+     */
+    private boolean chained(String keyConfig) {
+        return findInOldTable(keyConfig) != -1
+            || retrieveByKey(hashtable[hashFunction.hash(keyConfig, size)], keyConfig) != -1;
+    }
+
+    /* Helper Method
+     * @param keyConfig a configuration.
+     * @return the packed key of the configuration, or null if the packed table is
+     *    empty or cannot hold it. Nothing is packed while the packed table is empty.
+     */
+    private PackedKey packedKey(String keyConfig) {
+        return (packed == null || packed.size() == 0) ? null : packed.keyOf(keyConfig);
+    }
+
+    /* Helper Method
+     * @param keyConfig a configuration.
+     * @return true if the packed key of the configuration is stored.
+     */
+    private boolean packedHolds(String keyConfig) {
+        PackedKey key = packedKey(keyConfig);
+        return key != null && packed.contains(key);
+    }
+
+    /* Helper Method
+     * @param keyConfig a configuration.
+     * @return the score stored under the packed key of the configuration, or -1 if not found.
+     */
+    private int packedScore(String keyConfig) {
+        PackedKey key = packedKey(keyConfig);
+        return (key == null) ? -1 : packed.get(key);
+    }
+
+    /* Helper Method
+     * This method looks for a configuration among the buckets of the old table
+     * that have not been migrated yet.
+     * @param keyConfig the key used to search for the sought Record.
+     * @return the index of the Record in its old bucket, or -1 if it is not there.
+     */
+    private int findInOldTable(String keyConfig) {
+        if (oldTable == null) return -1;
+        int position = hashFunction.hash(keyConfig, oldSize);
+        if (position < migrated) return -1;
+        return retrieveByKey(oldTable[position], keyConfig);
+    }
+
+    /* Helper Method
+     * This method removes a Record from a bucket and releases the bucket once it is empty,
+     * which ensures we do not count an empty list as a collision cause.
+     * @param table the table holding the bucket.
+     * @param position the position of the bucket in the table.
+     * @param positionInList the index of the Record in the bucket.
+     */
+    private void removeFrom(LinkedList<Record>[] table, int position, int positionInList) {
+        table[position].remove(positionInList);
+        numRecords--;
+        if (table[position].size() == 0) table[position] = null;
+    }
+
+    /* Helper Method
+     * @param table a table of chains, possibly null.
+     * @return the number of non-empty chains in the table.
+     */
+    private static int usedBuckets(LinkedList<Record>[] table) {
+        int used = 0;
+        if (table != null)
+            for (int i = 0; i < table.length; i++) if (table[i] != null) used++;
+        return used;
+    }
+
+    /* Helper Method
+     * @param table a table of chains, possibly null.
+     * @return the length of the longest chain in the table.
+     */
+    private static int longestChain(LinkedList<Record>[] table) {
+        int longest = 0;
+        if (table != null)
+            for (int i = 0; i < table.length; i++)
+                if (table[i] != null) longest = Math.max(longest, table[i].size());
+        return longest;
+    }
+
+    /* Helper Method
+     * This method allocates a larger table and starts migrating to it.
+     * @param newSize the size of the new table.
+     */
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    private void startResize(int newSize) {
+        oldTable = hashtable;
+        oldSize = size;
+        migrated = 0;
+        size = newSize;
+        hashtable = new LinkedList[this.size];
+    }
+
+    /* Helper Method
+     * This method moves up to the given number of buckets from the old table to the current one.
+     * The old table is released once every bucket has been moved.
+     * @param buckets the maximum number of buckets to move.
+     */
+    private void migrate(int buckets) {
+        for (int moved = 0; moved < buckets && migrated < oldSize; moved++, migrated++) {
+            LinkedList<Record> chain = oldTable[migrated];
+            if (chain == null) continue;
+            for (Record pair : chain) {
+                int position = hashFunction.hash(pair.getConfig(), size);
+                if (hashtable[position] == null) hashtable[position] = new LinkedList<Record>();
+                hashtable[position].add(pair);
+            }
+            oldTable[migrated] = null;
+        }
+        if (migrated == oldSize) oldTable = null;
+    }
 }	 
\ No newline at end of file
@@ -3,9 +3,19 @@ public interface DictionaryADT
 {
     public int insert (Record pair) throws DictionaryException;
 
+    public int insert (PackedKey key, int score) throws DictionaryException;
+
     public void remove (String config) throws DictionaryException;
 
+    public void remove (PackedKey key) throws DictionaryException;
+
     public int get (String config);
 
+    public int get (PackedKey key);
+
     public int numElements();
+
+    public int insertAll (Record[] pairs) throws DictionaryException;
+
+    public void getAll (String[] configs, int[] scores);
 }
@@ -0,0 +1,283 @@
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+
+/* This program measures the throughput of insert, get and remove on the
+ * dictionaries, with configurations taken from nk_TicTacToe boards reached
+ * by random games. Every measurement is preceded by warmup rounds, so the
+ * code is compiled before it is timed, and the results of every operation
+ * are added to a volatile sink, so the compiler cannot drop them as dead
+ * code. For each case it prints operations per second and the bytes
+ * allocated per operation, read from the JVM's per-thread allocation counter.
+ *
+ * The cases vary the dictionary, its initial size and load factor, the
+ * board size (and so the key length), and the distribution of the keys
+ * looked up: uniform over the stored keys, or skewed towards a few of them
+ * as the positions near the root of a search are. A fifth of the lookups
+ * are for configurations that are not stored.
+ *
+ * Only Dictionary takes a load factor, so only its cases vary it; the
+ * others are run at 0.75, the load at which OpenDictionary and
+ * ConcurrentDictionary grow. BoundedDictionary and MappedDictionary never
+ * grow: a BoundedDictionary of the small size evicts or drops most keys,
+ * so its remove case only removes the keys it kept, and a MappedDictionary
+ * in a temporary file is made large enough for all the keys, whatever the size.
+ *
+ * To run it type: java DictionaryBenchmark [options], with the options
+ *     -time=ms      length of each warmup and measured round (default 500)
+ *     -rounds=n     measured rounds per case, the best is reported (default 3)
+ *     -keys=n       configurations stored per dictionary (default 20000)
+ *     -impl=name    only run dictionary, open, concurrent, bounded or mapped
+ *     -op=name      only run insert, get, remove, insertAll or getAll
+ */
+public class DictionaryBenchmark {
+    private static final int WARMUP_ROUNDS = 2;
+
+    static volatile long sink; // receives every result, so that no work is optimized away.
+    private static File mappedFile;         // the file of the MappedDictionary cases.
+    private static MappedDictionary mapped; // the last MappedDictionary made, closed by the next create().
+
+    private static com.sun.management.ThreadMXBean threads =
+        (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    /* The operation timed by a case. */
+    private static abstract class Operation {
+        /* Prepares the next run; this is not timed. */
+        void setup() {
+        }
+
+        /* @return the number of dictionary operations performed. */
+        abstract long run();
+    }
+
+    public static void main(String[] args) {
+        long time = Long.parseLong(option(args, "time", "500"));
+        int rounds = Integer.parseInt(option(args, "rounds", "3"));
+        int count = Integer.parseInt(option(args, "keys", "20000"));
+        String onlyImpl = option(args, "impl", "");
+        String onlyOp = option(args, "op", "");
+
+        System.out.println("impl\tsize\tload\tboard\tlookups\top\tops/s\tbytes/op");
+        for (int board = 4; board <= 8; board += 2) {
+            String[] keys = boards(board, count, new Random(2210 + board));
+            String[] absent = boards(board, count / 4, new Random(-board), keys);
+            for (int skewed = 0; skewed <= 1; skewed++) {
+                String[] lookups = lookups(keys, absent, skewed == 1, new Random(7));
+                for (String impl : new String[] {"dictionary", "open", "concurrent", "bounded", "mapped"}) {
+                    if (!onlyImpl.equals("") && !onlyImpl.equals(impl)) continue;
+                    int[] sizes = {1009, 4 * count / 3};
+                    float[] loads = impl.equals("dictionary") ? new float[] {0.75f, 2f} : new float[] {0.75f};
+                    for (int size : sizes)
+                        for (float load : loads)
+                            for (String op : new String[] {"insert", "get", "remove", "insertAll", "getAll"}) {
+                                if (!onlyOp.equals("") && !onlyOp.equals(op)) continue;
+                                if (skewed == 1 && !op.startsWith("get")) continue; // only lookups are skewed
+                                Operation operation = operation(impl, size, load, op, keys, lookups);
+                                for (int r = 0; r < WARMUP_ROUNDS; r++) measure(operation, time);
+                                double[] best = {0, 0};
+                                for (int r = 0; r < rounds; r++) {
+                                    double[] result = measure(operation, time);
+                                    if (result[0] > best[0]) best = result;
+                                }
+                                System.out.println(impl + "\t" + size + "\t" + load + "\t"
+                                    + board + "x" + board + "\t" + (skewed == 1 ? "skewed" : "uniform")
+                                    + "\t" + op + "\t" + Math.round(best[0])
+                                    + "\t" + String.format("%.1f", best[1]));
+                            }
+                }
+            }
+        }
+    }
+
+    /* Runs the operation until the given time has passed, timing and
+     * counting the allocations of its runs only, not of their setup.
+     * @param operation the operation to time.
+     * @param millis the length of the round.
+     * @return the operations per second and the bytes allocated per operation.
+     */
+    private static double[] measure(Operation operation, long millis) {
+        long thread = Thread.currentThread().getId();
+        long ops = 0, nanos = 0, allocated = 0;
+        long end = System.nanoTime() + millis * 1000000L;
+        do {
+            operation.setup();
+            long bytes = threads.getThreadAllocatedBytes(thread);
+            long start = System.nanoTime();
+            ops += operation.run();
+            nanos += System.nanoTime() - start;
+            allocated += threads.getThreadAllocatedBytes(thread) - bytes;
+        } while (System.nanoTime() < end);
+        return new double[] {ops * 1e9 / nanos, (double) allocated / ops};
+    }
+
+    /* Builds the operation of a case. Insert fills a new dictionary with every
+     * key; get looks up every key of the lookup sequence in a filled dictionary;
+     * remove takes every key the dictionary kept out of one filled during setup;
+     * insertAll and getAll do the same as insert and get in one batch call.
+     * @return the operation.
+     */
+    private static Operation operation(final String impl, final int size, final float load, String op,
+                                       final String[] keys, final String[] lookups) {
+        if (op.equals("insert")) {
+            return new Operation() {
+                private DictionaryADT dict;
+
+                void setup() {
+                    dict = create(impl, size, load, keys);
+                }
+
+                long run() {
+                    long sum = 0;
+                    for (int i = 0; i < keys.length; i++) sum += dict.insert(new Record(keys[i], i & 3));
+                    sink += sum;
+                    return keys.length;
+                }
+            };
+        }
+        if (op.equals("insertAll")) {
+            final Record[] pairs = new Record[keys.length];
+            for (int i = 0; i < keys.length; i++) pairs[i] = new Record(keys[i], i & 3);
+            return new Operation() {
+                private DictionaryADT dict;
+
+                void setup() {
+                    dict = create(impl, size, load, keys);
+                }
+
+                long run() {
+                    sink += dict.insertAll(pairs);
+                    return pairs.length;
+                }
+            };
+        }
+        if (op.equals("getAll")) {
+            final DictionaryADT dict = fill(create(impl, size, load, keys), keys);
+            final int[] scores = new int[lookups.length];
+            return new Operation() {
+                long run() {
+                    dict.getAll(lookups, scores);
+                    sink += scores[0];
+                    return lookups.length;
+                }
+            };
+        }
+        if (op.equals("get")) {
+            final DictionaryADT dict = fill(create(impl, size, load, keys), keys);
+            return new Operation() {
+                long run() {
+                    long sum = 0;
+                    for (int i = 0; i < lookups.length; i++) sum += dict.get(lookups[i]);
+                    sink += sum;
+                    return lookups.length;
+                }
+            };
+        }
+        return new Operation() {
+            private DictionaryADT dict;
+            private String[] kept;
+
+            void setup() {
+                dict = fill(create(impl, size, load, keys), keys);
+                List<String> found = new ArrayList<String>();
+                for (int i = 0; i < keys.length; i++) if (dict.get(keys[i]) != -1) found.add(keys[i]);
+                kept = found.toArray(new String[found.size()]);
+            }
+
+            long run() {
+                for (int i = kept.length - 1; i >= 0; i--) dict.remove(kept[i]);
+                sink += dict.numElements();
+                return kept.length;
+            }
+        };
+    }
+
+    /* A MappedDictionary is made in one temporary file, so the previous one
+     * is closed before the file is made again.
+     * @param keys the keys the dictionary will hold, which size the mapped file.
+     * @return an empty dictionary of the named implementation.
+     */
+    private static DictionaryADT create(String impl, int size, float load, String[] keys) {
+        if (impl.equals("open")) return new OpenDictionary(size);
+        if (impl.equals("concurrent")) return new ConcurrentDictionary(size);
+        if (impl.equals("bounded")) return new BoundedDictionary(size, BoundedDictionary.DEPTH_PREFERRED);
+        if (impl.equals("mapped")) {
+            try {
+                if (mapped != null) mapped.close();
+                if (mappedFile == null) {
+                    mappedFile = File.createTempFile("DictionaryBenchmark", ".dict");
+                    mappedFile.deleteOnExit();
+                }
+                mappedFile.delete();
+                mapped = new MappedDictionary(mappedFile, keys[0].length(), Math.max(size, 2L * keys.length));
+                return mapped;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        return new Dictionary(size, load);
+    }
+
+    /* @return the dictionary, after inserting every key. */
+    private static DictionaryADT fill(DictionaryADT dict, String[] keys) {
+        for (int i = 0; i < keys.length; i++) dict.insert(new Record(keys[i], i & 3));
+        return dict;
+    }
+
+    /* Plays random games on an nk_TicTacToe board and keeps the configuration
+     * after every play, so the keys have the mix of early and late positions
+     * a search meets.
+     * @param boardSize the dimension of the boards.
+     * @param count the number of distinct configurations wanted.
+     * @param random the source of random plays.
+     * @param exclude configurations not to return.
+     * @return distinct configurations.
+     */
+    private static String[] boards(int boardSize, int count, Random random, String... exclude) {
+        int squares = boardSize * boardSize;
+        HashSet<String> seen = new HashSet<String>();
+        for (String config : exclude) seen.add(config);
+        List<String> found = new ArrayList<String>();
+        while (found.size() < count) {
+            nk_TicTacToe t = new nk_TicTacToe(boardSize, Math.min(boardSize, 4), 0);
+            char symbol = 'X';
+            for (int p = 0; p < squares && found.size() < count; p++) {
+                int square = random.nextInt(squares);
+                while (!t.squareIsEmpty(square / boardSize, square % boardSize)) square = (square + 1) % squares;
+                t.storePlay(square / boardSize, square % boardSize, symbol);
+                String config = t.packedConfiguration().toConfig();
+                if (seen.add(config)) found.add(config);
+                if (t.wins(symbol)) break;
+                symbol = (symbol == 'X') ? 'O' : 'X';
+            }
+        }
+        return found.toArray(new String[found.size()]);
+    }
+
+    /* Builds a sequence of lookups, a fifth of them for absent configurations.
+     * Skewed lookups pick the i-th key with probability about proportional to 1/(i+1).
+     * @return the configurations to look up, in order.
+     */
+    private static String[] lookups(String[] keys, String[] absent, boolean skewed, Random random) {
+        String[] lookups = new String[keys.length];
+        for (int i = 0; i < lookups.length; i++) {
+            if (random.nextInt(5) == 0) lookups[i] = absent[random.nextInt(absent.length)];
+            else if (skewed) lookups[i] = keys[(int) Math.pow(keys.length, random.nextDouble()) - 1];
+            else lookups[i] = keys[random.nextInt(keys.length)];
+        }
+        return lookups;
+    }
+
+    /* Returns the value of option -name=value, or the given default value
+       if the option was not supplied.                                    */
+    private static String option(String[] args, String name, String default_value) {
+        for (int i = 0; i < args.length; i++)
+            if (args[i].startsWith("-" + name + "="))
+                return args[i].substring(name.length() + 2);
+        return default_value;
+    }
+}
@@ -0,0 +1,17 @@
+
+/* This interface describes a hash function that maps a configuration
+ * to a position on a hashtable of a given size.
+ */
+public interface HashFunction
+{
+    /* @param key the configuration to hash.
+     * @param tableSize the number of positions on the table.
+     * @return a position in [0, tableSize).
+     */
+    public int hash (String key, int tableSize);
+
+    /* @param minimum the smallest acceptable table size.
+     * @return the table size this function works best with, at least minimum.
+     */
+    public int tableSize (int minimum);
+}
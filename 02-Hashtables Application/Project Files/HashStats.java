@@ -0,0 +1,83 @@
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Random;
+
+/* This program reports collision and chain length statistics of the
+ * Dictionary under each HashFunction, on the TestDict workload and on
+ * random board configurations.
+ * To run it type: java HashStats [board-size]
+ */
+public class HashStats {
+
+    public static void main(String[] args) {
+        int boardSize = (args.length > 0) ? Integer.parseInt(args[0]) : 4;
+
+        String[] testDictKeys = new String[10000];
+        for (int i = 0; i < testDictKeys.length; ++i) {
+            String s = Integer.toString(i);
+            for (int j = 0; j < 5; ++j) s += s;
+            testDictKeys[i] = s;
+        }
+
+        String[] boardKeys = randomBoards(boardSize, 50000, new Random(2210));
+
+        HashFunction[] functions = { new PolynomialHash(33), new MultiplyShiftHash(), new MaskHash() };
+        for (int f = 0; f < functions.length; f++) {
+            report("TestDict", functions[f], testDictKeys, 9887);
+            report(boardSize + "x" + boardSize + " boards", functions[f], boardKeys, 7000);
+        }
+    }
+
+    /* Inserts every key into a new Dictionary and prints its statistics.
+     * @param workload the name of the workload.
+     * @param function the hash function under test.
+     * @param keys distinct configurations to insert.
+     * @param size the initial size of the dictionary.
+     */
+    private static void report(String workload, HashFunction function, String[] keys, int size) {
+        Dictionary dict = new Dictionary(function.tableSize(size), Dictionary.DEFAULT_LOAD_FACTOR, function);
+        long start = System.nanoTime();
+        for (int i = 0; i < keys.length; i++) dict.insert(new Record(keys[i], i));
+        long insertTime = System.nanoTime() - start;
+        start = System.nanoTime();
+        for (int i = 0; i < keys.length; i++) dict.get(keys[i]);
+        long getTime = System.nanoTime() - start;
+
+        System.out.println(workload + " / " + function.getClass().getName()
+            + ": records=" + dict.numElements()
+            + " table=" + dict.tableSize()
+            + " collisions=" + dict.numCollisions()
+            + " longest=" + dict.longestChain()
+            + " average=" + String.format("%.2f", dict.averageChainLength())
+            + " insert=" + insertTime / keys.length + "ns"
+            + " get=" + getTime / keys.length + "ns");
+    }
+
+    /* Builds distinct configurations of partially played boards, in the
+     * row-major 'X', 'O', ' ' form used by nk_TicTacToe.
+     * @param boardSize the dimension of the boards.
+     * @param count the number of configurations wanted.
+     * @param random the source of random plays.
+     * @return an array of distinct configurations.
+     */
+    private static String[] randomBoards(int boardSize, int count, Random random) {
+        HashSet<String> seen = new HashSet<String>();
+        String[] boards = new String[count];
+        int squares = boardSize * boardSize;
+        int found = 0;
+        for (int attempts = 0; found < count && attempts < 50 * count; attempts++) {
+            char[] board = new char[squares];
+            for (int i = 0; i < squares; i++) board[i] = ' ';
+            int plays = random.nextInt(squares + 1);
+            for (int p = 0; p < plays; p++) {
+                int square = random.nextInt(squares);
+                while (board[square] != ' ') square = (square + 1) % squares;
+                board[square] = (p % 2 == 0) ? 'X' : 'O';
+            }
+            String config = new String(board);
+            if (seen.add(config)) boards[found++] = config;
+        }
+        if (found < count) boards = Arrays.copyOf(boards, found);
+        return boards;
+    }
+}
@@ -0,0 +1,198 @@
+/* This class keeps, for every line of 'inline' consecutive squares on the
+ * board (rows, columns and both diagonal directions), how many of its
+ * squares hold an 'X' and how many hold an 'O'. A play only touches the
+ * lines through its square, so the counts are kept up to date in
+ * O(inline) time, and a player has won exactly when one of its counts
+ * reaches 'inline'.
+ *
+ * A line holding symbols of one player only is open: that player may still
+ * complete it. The counts also keep a balance of the open lines, weighted
+ * by how many symbols they hold, and the lines one symbol short of a win,
+ * so that a search can grade positions and see threats without scanning
+ * the board.
+ */
+public class LineCounts {
+    private int inline;
+    private int[][] cellLines; // cellLines[i] lists the lines through square i.
+    private int[][] lineCells; // lineCells[l] lists the squares of line l.
+    private int[] xCount;      // xCount[l] is the number of 'X's on line l.
+    private int[] oCount;      // oCount[l] is the number of 'O's on line l.
+    private int xComplete;     // the number of lines filled with 'X'.
+    private int oComplete;     // the number of lines filled with 'O'.
+    private int empty;         // the number of empty squares.
+    private int[] lineSum;     // lineSum[l] is the sum of the squares of line l.
+    private int[] filledSum;   // filledSum[l] is the sum of the non-empty squares of line l.
+    private int[] weight;      // weight[c] is the value of an open line holding c symbols.
+    private int balance;       // the weights of the open 'O' lines minus those of the open 'X' lines.
+    private int[][] threats;   // threats[p] lists the lines player p (0 'X', 1 'O') lacks one symbol on.
+    private int[] numThreats;  // numThreats[p] is the length of the list threats[p].
+    private int[][] threatIndex; // threatIndex[p][l] is the index of line l in threats[p], or -1.
+
+    /* Class Constructor
+     * All the squares start empty.
+     * @param board_size the dimension of the game board.
+     * @param inline the number of symbols inline needed to win.
+     */
+    public LineCounts(int board_size, int inline) {
+        this.inline = inline;
+        int squares = board_size * board_size;
+        empty = squares;
+
+        /* the four directions: right, down, down-right and down-left */
+        int[] dRow = {0, 1, 1, 1};
+        int[] dCol = {1, 0, 1, -1};
+        int lines = 0;
+        int[][] found = new int[4 * squares][];
+        for (int d = 0; d < 4; d++)
+            for (int row = 0; row < board_size; row++)
+                for (int col = 0; col < board_size; col++) {
+                    int lastRow = row + (inline - 1) * dRow[d];
+                    int lastCol = col + (inline - 1) * dCol[d];
+                    if (inline < 1 || lastRow >= board_size || lastCol < 0 || lastCol >= board_size) continue;
+                    int[] cells = new int[inline];
+                    for (int i = 0; i < inline; i++)
+                        cells[i] = (row + i * dRow[d]) * board_size + col + i * dCol[d];
+                    found[lines++] = cells;
+                }
+        lineCells = new int[lines][];
+        System.arraycopy(found, 0, lineCells, 0, lines);
+        xCount = new int[lines];
+        oCount = new int[lines];
+        lineSum = new int[lines];
+        filledSum = new int[lines];
+        for (int l = 0; l < lines; l++)
+            for (int i = 0; i < inline; i++) lineSum[l] += lineCells[l][i];
+
+        /* each symbol more on an open line is worth four times as much */
+        weight = new int[Math.max(inline, 0) + 1];
+        for (int c = 1; c < weight.length; c++) weight[c] = 1 << Math.min(2 * (c - 1), 24);
+        threats = new int[2][lines];
+        numThreats = new int[2];
+        threatIndex = new int[2][lines];
+        for (int l = 0; l < lines; l++) {
+            threatIndex[0][l] = threatIndex[1][l] = -1;
+            if (inline == 1) {
+                /* a single empty square already completes a line */
+                addThreat(0, l);
+                addThreat(1, l);
+            }
+        }
+
+        int[] through = new int[squares];
+        for (int l = 0; l < lines; l++)
+            for (int i = 0; i < inline; i++) through[lineCells[l][i]]++;
+        cellLines = new int[squares][];
+        for (int i = 0; i < squares; i++) cellLines[i] = new int[through[i]];
+        for (int l = 0; l < lines; l++)
+            for (int i = 0; i < inline; i++) {
+                int cell = lineCells[l][i];
+                cellLines[cell][--through[cell]] = l;
+            }
+    }
+
+    /* Mutator Method
+     * This method records that a square changed from one symbol to another.
+     * @param square the square index, row * board_size + col.
+     * @param oldSymbol the symbol that was on the square: 'X', 'O' or ' '.
+     * @param newSymbol the symbol now on the square: 'X', 'O' or ' '.
+     */
+    public void update(int square, char oldSymbol, char newSymbol) {
+        if (oldSymbol == newSymbol) return;
+        int[] lines = cellLines[square];
+        if (oldSymbol == ' ') empty--;
+        else if (newSymbol == ' ') empty++;
+        for (int i = 0; i < lines.length; i++) {
+            int l = lines[i];
+            balance -= openWeight(l);
+            if (oldSymbol == 'X' && xCount[l]-- == inline) xComplete--;
+            else if (oldSymbol == 'O' && oCount[l]-- == inline) oComplete--;
+            if (newSymbol == 'X' && ++xCount[l] == inline) xComplete++;
+            else if (newSymbol == 'O' && ++oCount[l] == inline) oComplete++;
+            if (oldSymbol == ' ') filledSum[l] += square;
+            else if (newSymbol == ' ') filledSum[l] -= square;
+            balance += openWeight(l);
+            updateThreat(0, l, xCount[l] == inline - 1 && oCount[l] == 0);
+            updateThreat(1, l, oCount[l] == inline - 1 && xCount[l] == 0);
+        }
+    }
+
+    /* Accessor Method
+     * @param symbol either 'X' or 'O'.
+     * @return true if some line is filled with the symbol.
+     */
+    public boolean wins(char symbol) {
+        return (symbol == 'X') ? xComplete > 0 : oComplete > 0;
+    }
+
+    /* Accessor Method
+     * @return the number of empty squares on the board.
+     */
+    public int emptySquares() {
+        return empty;
+    }
+
+    /* Accessor Method
+     * Every open line adds 4^(c-1) for the c symbols it holds, counted for
+     * 'O' and against 'X', so a line one symbol short of a win outweighs
+     * several shorter ones.
+     * @return the weighted open lines of 'O' minus those of 'X'.
+     */
+    public int balance() {
+        return balance;
+    }
+
+    /* Accessor Method
+     * This method lists the squares where the player would complete a line.
+     * @param symbol either 'X' or 'O'.
+     * @param squares receives distinct winning squares, at most squares.length of them.
+     * @return the number of squares stored in squares.
+     */
+    public int winningSquares(char symbol, int[] squares) {
+        int p = (symbol == 'X') ? 0 : 1;
+        int found = 0;
+        for (int i = 0; i < numThreats[p] && found < squares.length; i++) {
+            int l = threats[p][i];
+            int square = lineSum[l] - filledSum[l];  // the one empty square of the line
+            int j = 0;
+            while (j < found && squares[j] != square) j++;
+            if (j == found) squares[found++] = square;
+        }
+        return found;
+    }
+
+    /* Helper Method
+     * @param l a line.
+     * @return the weight of the line if it is open, positive for 'O' and negative for 'X'.
+     */
+    private int openWeight(int l) {
+        if (xCount[l] == 0) return weight[oCount[l]];
+        if (oCount[l] == 0) return -weight[xCount[l]];
+        return 0;
+    }
+
+    /* Helper Method
+     * @param p the player, 0 for 'X' and 1 for 'O'.
+     * @param l a line.
+     * @param threat true if the player now lacks one symbol on the line.
+     */
+    private void updateThreat(int p, int l, boolean threat) {
+        if (threat && threatIndex[p][l] == -1) addThreat(p, l);
+        else if (!threat && threatIndex[p][l] != -1) {
+            /* move the last line of the list into the removed one's place */
+            int index = threatIndex[p][l];
+            int last = threats[p][--numThreats[p]];
+            threats[p][index] = last;
+            threatIndex[p][last] = index;
+            threatIndex[p][l] = -1;
+        }
+    }
+
+    /* Helper Method
+     * @param p the player, 0 for 'X' and 1 for 'O'.
+     * @param l a line the player lacks one symbol on, not yet listed.
+     */
+    private void addThreat(int p, int l) {
+        threatIndex[p][l] = numThreats[p];
+        threats[p][numThreats[p]++] = l;
+    }
+}
@@ -0,0 +1,325 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/* This class implements the Dictionary ADT in a memory-mapped file instead
+ * of the Java heap. Records are kept in fixed-size slots, each holding a
+ * configuration packed as in PackedKey followed by a word with the score,
+ * and are found by linear probing from the configuration's home slot.
+ * The table does not grow, so its capacity is chosen when the file is made.
+ * The file is written in place, so reopening it restores the Records; the
+ * file may be larger than 2GB, as it is mapped in several regions.
+ * Any number of processes may read a file, but only one should write it.
+ */
+public class MappedDictionary implements DictionaryADT {
+    private static final long MAGIC = 0x6E6B54544444494CL; // "nkTTDDIL", marks a dictionary file.
+    private static final int HEADER = 32;         // bytes: magic, squares, capacity and record count.
+    private static final long REGION = 1L << 30;  // the most bytes mapped by one buffer.
+    private static final long FULL = 1L << 32;    // set in the score word of an occupied slot.
+    private static final long MIX = 0x9E3779B97F4A7C15L; // 2^64 divided by the golden ratio.
+
+    private FileChannel channel;
+    private MappedByteBuffer header;
+    private MappedByteBuffer[] regions;
+    private int squares;       // the number of squares of the boards stored.
+    private int words;         // the key words of a slot.
+    private int slotBytes;     // the bytes of a slot: the key words and the score word.
+    private long slotsPerRegion;
+    private long mask;         // capacity - 1, the capacity is a power of two.
+    private long numRecords;
+
+    /* Class Constructor
+     * This constructor reopens the file if it already holds a dictionary for
+     * boards of the same number of squares, and makes a new one otherwise.
+     * @param file the file holding the dictionary.
+     * @param squares the number of squares of the boards stored, board_size * board_size.
+     * @param capacity the number of slots of a new dictionary, rounded up to a power of two.
+     * @throws IOException if the file cannot be mapped, or holds a dictionary
+     *    for another board.
+     * @throws DictionaryException if the header of the file is corrupt: its
+     *    capacity is not a power of two, the file is not exactly as long as the
+     *    header and that many slots, or the record count does not fit in them.
+     */
+    public MappedDictionary(File file, int squares, long capacity) throws IOException {
+        this.squares = squares;
+        words = PackedKey.wordsFor(squares);
+        slotBytes = 8 * (words + 1);
+        slotsPerRegion = REGION / slotBytes;
+        channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+            StandardOpenOption.READ, StandardOpenOption.WRITE);
+        boolean reopened = channel.size() > 0;
+        if (reopened) {
+            /* the header is read, not mapped, so a file that is not a dictionary is left as it was */
+            ByteBuffer existing = ByteBuffer.allocate(HEADER);
+            int read = 0;
+            while (existing.hasRemaining() && read != -1) read = channel.read(existing, existing.position());
+            if (existing.hasRemaining() || existing.getLong(0) != MAGIC || existing.getLong(8) != squares) {
+                channel.close();
+                throw new IOException(file + " does not hold a dictionary for " + squares + " squares");
+            }
+            capacity = existing.getLong(16);
+            numRecords = existing.getLong(24);
+            /* one slot is always left empty, so at most capacity - 1 records are stored */
+            if (capacity <= 0 || (capacity & (capacity - 1)) != 0
+                || capacity > (Long.MAX_VALUE - HEADER) / slotBytes
+                || channel.size() != HEADER + capacity * slotBytes
+                || numRecords < 0 || numRecords >= capacity) {
+                channel.close();
+                throw new DictionaryException();
+            }
+            header = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER);
+        }
+        else {
+            long slots = 1;
+            while (slots < capacity) slots <<= 1;
+            capacity = slots;
+            header = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER);
+            header.putLong(0, MAGIC).putLong(8, squares).putLong(16, capacity).putLong(24, 0);
+        }
+        mask = capacity - 1;
+
+        int count = (int) ((capacity + slotsPerRegion - 1) / slotsPerRegion);
+        regions = new MappedByteBuffer[count];
+        for (int r = 0; r < count; r++) {
+            long slots = Math.min(slotsPerRegion, capacity - r * slotsPerRegion);
+            regions[r] = channel.map(FileChannel.MapMode.READ_WRITE,
+                HEADER + r * slotsPerRegion * slotBytes, slots * slotBytes);
+        }
+    }
+
+    /* Mutator Method
+     * @param pair a Record instance containing configuration and score.
+     * @return 0 if the home slot was empty, 1 if probing was needed.
+     * @throws DictionaryException if the configuration already exists in the
+     *    dictionary, or the dictionary is full.
+     * @throws IllegalArgumentException if the configuration is for a board of another size.
+     */
+    public int insert(Record pair) throws DictionaryException {
+        return insert(new PackedKey(pair.getConfig()), pair.getScore());
+    }
+
+    /* Mutator Method
+     * @param key the packed configuration to store.
+     * @param score the score associated with the configuration.
+     * @return 0 if the home slot was empty, 1 if probing was needed.
+     * @throws DictionaryException if the configuration already exists in the
+     *    dictionary, or the dictionary is full.
+     * @throws IllegalArgumentException if the key is for a board of another size.
+     */
+    public int insert(PackedKey key, int score) throws DictionaryException {
+        checkSize(key);
+        if (numRecords >= mask) throw new DictionaryException();  // keep one slot empty to end probes
+        long home = slotOf(key);
+        long i = home;
+        while (occupied(i)) {
+            if (matches(i, key)) throw new DictionaryException();
+            i = (i + 1) & mask;
+        }
+        MappedByteBuffer region = regions[(int) (i / slotsPerRegion)];
+        int offset = offset(i);
+        for (int w = 0; w < words; w++) region.putLong(offset + 8 * w, key.word(w));
+        region.putLong(offset + 8 * words, FULL | (score & 0xFFFFFFFFL));
+        header.putLong(24, ++numRecords);
+        return (i == home) ? 0 : 1;
+    }
+
+    /* Mutator Method
+     * @param config the configuration to locate and remove.
+     * @throws DictionaryException if the configuration cannot be found.
+     */
+    public void remove(String config) throws DictionaryException {
+        remove(new PackedKey(config));
+    }
+
+    /* Mutator Method
+     * This method removes a configuration and shifts back the records that follow it
+     * in the same probe run, as OpenDictionary does.
+     * @param key the packed configuration to locate and remove.
+     * @throws DictionaryException if the configuration cannot be found.
+     */
+    public void remove(PackedKey key) throws DictionaryException {
+        long i = find(key);
+        if (i == -1) throw new DictionaryException();
+        long hole = i;
+        long j = (i + 1) & mask;
+        while (occupied(j)) {
+            long home = slotOf(j);
+            /* the record in slot j may fill the hole only if its home is not in (hole, j]. */
+            if (((j - home) & mask) >= ((j - hole) & mask)) {
+                copySlot(j, hole);
+                hole = j;
+            }
+            j = (j + 1) & mask;
+        }
+        regions[(int) (hole / slotsPerRegion)].putLong(offset(hole) + 8 * words, 0);
+        header.putLong(24, --numRecords);
+    }
+
+    /* Accessor Method
+     * @param config is the key used in searching for the score.
+     * @return the score associated with the configuration, or -1 if not found.
+     */
+    public int get(String config) {
+        return get(new PackedKey(config));
+    }
+
+    /* Accessor Method
+     * @param key the packed configuration searched for.
+     * @return the score associated with the configuration, or -1 if not found.
+     */
+    public int get(PackedKey key) {
+        long i = find(key);
+        if (i == -1) return -1;
+        return (int) regions[(int) (i / slotsPerRegion)].getLong(offset(i) + 8 * words);
+    }
+
+    /* Mutator Method
+     * This method inserts the Records one after the other with insert(); it
+     * does not batch their hashing or sort them by slot.
+     * @param pairs the Records to insert, one after the other.
+     * @return the number of inserts that returned 1.
+     * @throws DictionaryException if an insert fails; the Records inserted before it remain.
+     */
+    public int insertAll(Record[] pairs) throws DictionaryException {
+        int count = 0;
+        for (int i = 0; i < pairs.length; i++) count += insert(pairs[i]);
+        return count;
+    }
+
+    /* Accessor Method
+     * This method looks up the configurations one after the other with get();
+     * it does not batch their hashing or sort them by slot.
+     * @param configs the configurations to look up.
+     * @param scores receives in scores[i] the score of configs[i], or -1 if it is not found.
+     */
+    public void getAll(String[] configs, int[] scores) {
+        for (int i = 0; i < configs.length; i++) scores[i] = get(configs[i]);
+    }
+
+    /* Accessor Method
+     * A file may hold more Records than an int counts, see numRecords().
+     * @return the number of Record instances in the Dictionary, at most Integer.MAX_VALUE.
+     */
+    public int numElements() {
+        return (int) Math.min(numRecords, Integer.MAX_VALUE);
+    }
+
+    /* Accessor Method
+     * @return the number of Record instances in the Dictionary.
+     */
+    public long numRecords() {
+        return numRecords;
+    }
+
+    /* Accessor Method
+     * @return the number of slots in the file.
+     */
+    public long capacity() {
+        return mask + 1;
+    }
+
+    /* This method writes the changed slots to the file. */
+    public void force() {
+        header.force();
+        for (int r = 0; r < regions.length; r++) regions[r].force();
+    }
+
+    /* This method writes the changed slots to the file and closes it.
+     * The dictionary must not be used afterwards.
+     * @throws IOException if the file cannot be closed.
+     */
+    public void close() throws IOException {
+        force();
+        channel.close();
+    }
+
+    /* Helper Method
+     * @param i a slot.
+     * @return the byte offset of the slot in its region.
+     */
+    private int offset(long i) {
+        return (int) ((i % slotsPerRegion) * slotBytes);
+    }
+
+    /* Helper Method
+     * @param i a slot.
+     * @return true if the slot holds a record.
+     */
+    private boolean occupied(long i) {
+        return (regions[(int) (i / slotsPerRegion)].getLong(offset(i) + 8 * words) & FULL) != 0;
+    }
+
+    /* Helper Method
+     * @param i an occupied slot.
+     * @param key a packed configuration.
+     * @return true if the slot holds the configuration.
+     */
+    private boolean matches(long i, PackedKey key) {
+        MappedByteBuffer region = regions[(int) (i / slotsPerRegion)];
+        int offset = offset(i);
+        for (int w = 0; w < words; w++)
+            if (region.getLong(offset + 8 * w) != key.word(w)) return false;
+        return true;
+    }
+
+    /* Helper Method
+     * @param key the packed configuration to search for.
+     * @return the slot holding the configuration, or -1 if not found.
+     * @throws IllegalArgumentException if the key is for a board of another size.
+     */
+    private long find(PackedKey key) {
+        checkSize(key);
+        long i = slotOf(key);
+        while (occupied(i)) {
+            if (matches(i, key)) return i;
+            i = (i + 1) & mask;
+        }
+        return -1;
+    }
+
+    /* Helper Method
+     * @param key a packed configuration.
+     * @throws IllegalArgumentException if the key is for a board of another size.
+     */
+    private void checkSize(PackedKey key) {
+        if (key.squares() != squares) throw new IllegalArgumentException("expected " + squares + " squares");
+    }
+
+    /* Helper Method
+     * @param key a packed configuration.
+     * @return its home slot, mixed from all 64 bits of every word.
+     */
+    private long slotOf(PackedKey key) {
+        long h = words;
+        for (int w = 0; w < words; w++) h = (h ^ key.word(w)) * MIX;
+        return (h ^ (h >>> 29)) & mask;
+    }
+
+    /* Helper Method
+     * @param i an occupied slot.
+     * @return the home slot of the record it holds.
+     */
+    private long slotOf(long i) {
+        MappedByteBuffer region = regions[(int) (i / slotsPerRegion)];
+        int offset = offset(i);
+        long h = words;
+        for (int w = 0; w < words; w++) h = (h ^ region.getLong(offset + 8 * w)) * MIX;
+        return (h ^ (h >>> 29)) & mask;
+    }
+
+    /* Helper Method
+     * @param from an occupied slot.
+     * @param to the slot that receives its record.
+     */
+    private void copySlot(long from, long to) {
+        MappedByteBuffer source = regions[(int) (from / slotsPerRegion)];
+        MappedByteBuffer target = regions[(int) (to / slotsPerRegion)];
+        int sourceOffset = offset(from);
+        int targetOffset = offset(to);
+        for (int w = 0; w <= words; w++)
+            target.putLong(targetOffset + 8 * w, source.getLong(sourceOffset + 8 * w));
+    }
+}
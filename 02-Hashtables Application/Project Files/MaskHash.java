@@ -0,0 +1,33 @@
+/* This class implements a hash function for tables whose size is a power
+ * of two. Characters are mixed as in MultiplyShiftHash, and the position
+ * is taken from the low bits of the mixed state with a single mask.
+ */
+public class MaskHash implements HashFunction {
+    private static final int SEED = 0x9E3779B9; // 2^32 divided by the golden ratio.
+
+    /* @param key the configuration to hash.
+     * @param tableSize the number of positions on the table, a power of two.
+     * @return a position in [0, tableSize).
+     * @throws IllegalArgumentException if tableSize is not a power of two, as the
+     *    mask would leave some of its positions unused.
+     */
+    public int hash(String key, int tableSize) {
+        if (tableSize <= 0 || (tableSize & (tableSize - 1)) != 0)
+            throw new IllegalArgumentException("MaskHash needs a power of two table size, not " + tableSize);
+        int h = 0;
+        for (int i = 0; i < key.length(); i++) {
+            h = (Integer.rotateLeft(h, 5) ^ key.charAt(i)) * SEED;
+        }
+        /* fold the well mixed high bits into the low bits kept by the mask */
+        h ^= (h >>> 16) ^ (h >>> 7);
+        return h & (tableSize - 1);
+    }
+
+    /* @param minimum the smallest acceptable table size.
+     * @return the smallest power of two that is at least minimum.
+     */
+    public int tableSize(int minimum) {
+        int size = Integer.highestOneBit(Math.max(minimum, 1));
+        return (size < minimum) ? size << 1 : size;
+    }
+}
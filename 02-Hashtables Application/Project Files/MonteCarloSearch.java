@@ -0,0 +1,434 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+/* This class chooses plays by Monte Carlo tree search with the UCT rule,
+ * for boards too large for alpha/beta to search deep enough. Each
+ * iteration walks down the tree choosing the child with the best upper
+ * confidence bound, expands the node it reaches, plays the rest of the
+ * game at random (a playout) and adds the result to every node on the way.
+ * The play visited most often at the root is chosen.
+ *
+ * The search is parallelized at the root: every thread grows its own tree
+ * on its own copy of the board, and the visits of the root plays are added
+ * up over the threads at the end. Each tree keeps its nodes in arrays
+ * allocated once, a node pool, so no objects are made while searching;
+ * once the pool is full the tree stops growing and playouts start from its
+ * leaves. Playouts undo their plays on the thread's board copy afterwards.
+ *
+ * The search runs until its time budget or its number of playouts is used
+ * up, or stop() is called. It proves nothing, so the score returned is 1
+ * (undecided) unless the chosen play ends the game.
+ */
+public class MonteCarloSearch implements SearchEngine {
+    public static final char COMPUTER = AlphaBetaSearch.COMPUTER;
+    public static final char HUMAN    = AlphaBetaSearch.HUMAN;
+    public static final double EXPLORATION = 1.4;  // the UCT exploration constant, about sqrt(2).
+    public static final long DEFAULT_PLAYOUTS = 20000;
+    public static final int DEFAULT_POOL = 1 << 18; // the nodes of each thread's tree.
+
+    private static final int CHECK_INTERVAL = 64;     // playouts between two looks at the clock.
+    private static final long REPORT_INTERVAL = 100000000L; // nanoseconds between progress reports.
+
+    private nk_TicTacToeADT t;           // the board being searched, which is never changed.
+    private int board_size;
+    private ForkJoinPool pool;
+    private Tree[] trees;                // trees[i] is grown by the i-th task, reused from move to move.
+    private long budget;                 // the time allowed per move in nanoseconds, 0 to count playouts.
+    private long playouts = DEFAULT_PLAYOUTS; // the playouts per move, over all threads, without a time budget.
+    private boolean threats;             // true to take wins and block threats in playouts.
+    private volatile boolean cancelled;  // set by stop(), possibly from another thread.
+    private AtomicLong nodes = new AtomicLong(); // the playouts of the last search.
+    private SearchListener listener;     // told of the best play now and then, or null.
+    private SearchStats stats;           // receives the playouts of every search, or null.
+
+    /* Class Constructor
+     * @param t the board to search, which is copied by every search.
+     * @param board_size the dimension of the board.
+     * @param threads the number of threads to search with.
+     */
+    public MonteCarloSearch(nk_TicTacToeADT t, int board_size, int threads) {
+        this(t, board_size, threads, DEFAULT_POOL);
+    }
+
+    /* Class Constructor
+     * @param t the board to search, which is copied by every search.
+     * @param board_size the dimension of the board.
+     * @param threads the number of threads to search with.
+     * @param nodes the maximum number of nodes of each thread's tree.
+     * @throws IllegalArgumentException if threads or nodes is not positive.
+     */
+    public MonteCarloSearch(nk_TicTacToeADT t, int board_size, int threads, int nodes) {
+        if (threads <= 0 || nodes <= 0) throw new IllegalArgumentException("threads and nodes must be positive");
+        this.t = t;
+        this.board_size = board_size;
+        pool = new ForkJoinPool(threads);
+        trees = new Tree[threads];
+        for (int i = 0; i < threads; i++) trees[i] = new Tree(nodes, 2210L + 7919L * i);
+    }
+
+    /* Mutator Method
+     * @param millis the time allowed to choose a play, or 0 to run a fixed number of playouts.
+     */
+    public void setTimeBudget(long millis) {
+        budget = millis * 1000000L;
+    }
+
+    /* Mutator Method
+     * @param playouts the number of playouts per move, shared among the threads,
+     *    used when there is no time budget.
+     * @throws IllegalArgumentException if playouts is not positive.
+     */
+    public void setPlayouts(long playouts) {
+        if (playouts <= 0) throw new IllegalArgumentException("playouts must be positive");
+        this.playouts = playouts;
+    }
+
+    /* Mutator Method
+     * @param threats true to have playouts take a winning square, or block the
+     *    opponent's, before playing at random.
+     */
+    public void setThreats(boolean threats) {
+        this.threats = threats;
+    }
+
+    /* Mutator Method
+     * The playouts score only finished games, so there is nothing to grade.
+     * @param graded ignored.
+     */
+    public void setGradedEvaluation(boolean graded) {
+    }
+
+    /* Mutator Method
+     * The children of a node are all visited once before UCT orders them.
+     * @param ordering ignored.
+     */
+    public void setMoveOrdering(boolean ordering) {
+    }
+
+    /* Mutator Method
+     * A new tree is grown for every move.
+     * @param keepTable ignored.
+     */
+    public void setKeepTable(boolean keepTable) {
+    }
+
+    /* Mutator Method
+     * @param symmetry ignored, as the trees are not keyed by position.
+     */
+    public void setSymmetry(boolean symmetry) {
+    }
+
+    /* Mutator Method
+     * @param listener the listener told of the best play about ten times a second, or null.
+     *    It is called on a thread of the pool.
+     */
+    public void setSearchListener(SearchListener listener) {
+        this.listener = listener;
+    }
+
+    /* Mutator Method
+     * @param stats the statistics each search adds its playouts to, as nodes, or null.
+     */
+    public void setStats(SearchStats stats) {
+        this.stats = stats;
+    }
+
+    /* This method makes the running search return as soon as possible with
+     * the best play found so far. It may be called from any thread.
+     */
+    public void stop() {
+        cancelled = true;
+    }
+
+    /* This method withdraws an earlier stop(), so that the next search runs.
+     * Call it before handing the search to another thread.
+     */
+    public void clearStop() {
+        cancelled = false;
+    }
+
+    /* Accessor Method
+     * @return null, as the search keeps no transposition table.
+     */
+    public TranspositionTable getTable() {
+        return null;
+    }
+
+    /* Accessor Method
+     * @return the number of playouts run by the last call to computerPlay.
+     */
+    public long getNodes() {
+        return nodes.get();
+    }
+
+    /* Mutator Method
+     * This method stops the threads of the pool once the current search ends.
+     */
+    public void shutdown() {
+        pool.shutdown();
+    }
+
+    /* This method chooses the play for the given player on the current board.
+     * @param symbol the player to move, COMPUTER or HUMAN.
+     * @return the play visited most often over all the trees; its score is
+     *    3 or 0 if it wins, 2 if it draws and 1 otherwise.
+     */
+    public PosPlay computerPlay(final char symbol) {
+        nodes.set(0);
+        final long deadline = System.nanoTime() + budget;
+        List<Callable<Void>> tasks = new ArrayList<Callable<Void>>();
+        for (int i = 0; i < trees.length; i++) {
+            final Tree tree = trees[i];
+            final long limit = playouts / trees.length + (i < playouts % trees.length ? 1 : 0);
+            final boolean reporting = (i == 0);
+            tasks.add(new Callable<Void>() {
+                public Void call() {
+                    tree.search(t.copy(), symbol, deadline, limit, reporting);
+                    return null;
+                }
+            });
+        }
+        for (Future<Void> future : pool.invokeAll(tasks)) {
+            try {
+                future.get();
+            }
+            catch (InterruptedException | ExecutionException e) {
+                throw new RuntimeException(e);
+            }
+        }
+
+        long[] visits = new long[board_size * board_size];
+        for (int i = 0; i < trees.length; i++) trees[i].addRootVisits(visits);
+        int best = -1;
+        for (int square = 0; square < visits.length; square++) {
+            if (!t.squareIsEmpty(square / board_size, square % board_size)) continue;
+            if (best == -1 || visits[square] > visits[best]) best = square;
+        }
+        if (stats != null) stats.addSearch(nodes.get(), new long[0], 0, 0);
+        if (best == -1) return new PosPlay(t.evalBoard(), -1, -1);
+        return play(best, symbol);
+    }
+
+    /* Helper Method
+     * @param square an empty square of the board.
+     * @param symbol the player to move.
+     * @return the play of the square, scored as described in computerPlay.
+     */
+    private PosPlay play(int square, char symbol) {
+        int row = square / board_size;
+        int col = square % board_size;
+        t.storePlay(row, col, symbol);
+        int score = (t.wins(symbol) || t.isDraw()) ? t.evalBoard() : 1;
+        t.storePlay(row, col, ' ');
+        return new PosPlay(score, row, col);
+    }
+
+    /* The tree grown by one thread, kept in a pool of nodes. Node 0 is the
+     * root; the children of an expanded node are consecutive nodes. */
+    private class Tree {
+        private int[] move;       // move[n] is the square played to reach node n.
+        private int[] first;      // first[n] is the first child of node n, or -1 if it is not expanded.
+        private int[] children;   // children[n] is the number of children of node n.
+        private int[] visits;     // visits[n] is the number of playouts through node n.
+        private float[] reward;   // reward[n] adds up the results for the player who made move[n].
+        private int size;         // the nodes in use.
+
+        private int[] path;       // the nodes from the root of the current iteration.
+        private int[] played;     // the squares played by the current iteration, to be undone.
+        private int numPlayed;
+        private int[] empty;      // the empty squares during a playout.
+        private int[] emptyIndex; // emptyIndex[square] is the index of square in empty.
+        private int[] found = new int[1]; // receives a winning square.
+        private long seed;        // the state of the random number generator.
+
+        Tree(int capacity, long seed) {
+            move = new int[capacity];
+            first = new int[capacity];
+            children = new int[capacity];
+            visits = new int[capacity];
+            reward = new float[capacity];
+            int squares = board_size * board_size;
+            path = new int[squares + 1];
+            played = new int[squares];
+            empty = new int[squares];
+            emptyIndex = new int[squares];
+            this.seed = seed;
+        }
+
+        /* Runs playouts from the board until the budget is used up.
+         * @param b the thread's copy of the board, restored after every playout.
+         * @param symbol the player to move.
+         * @param deadline System.nanoTime() at which to stop, with a time budget.
+         * @param limit the playouts to run, without a time budget.
+         * @param reporting true if this tree tells the listener of its progress.
+         */
+        void search(nk_TicTacToeADT b, char symbol, long deadline, long limit, boolean reporting) {
+            size = 1;
+            move[0] = -1;
+            first[0] = -1;
+            visits[0] = 0;
+            reward[0] = 0;
+            long count = 0;
+            long report = System.nanoTime() + REPORT_INTERVAL;
+            int deepest = 0;
+            while (!cancelled && (budget != 0 || count < limit)) {
+                deepest = Math.max(deepest, iterate(b, symbol));
+                if (++count % CHECK_INTERVAL == 0) {
+                    long now = System.nanoTime();
+                    if (budget != 0 && now > deadline) break;
+                    if (reporting && listener != null && now > report) {
+                        report = now + REPORT_INTERVAL;
+                        int best = mostVisited();
+                        if (best != -1)
+                            listener.searchProgress(deepest, count * trees.length,
+                                new PosPlay(1, move[best] / board_size, move[best] % board_size));
+                    }
+                }
+            }
+            nodes.addAndGet(count);
+        }
+
+        /* Adds the visits of each root play to visits[square]. */
+        void addRootVisits(long[] total) {
+            for (int c = first[0]; c >= 0 && c < first[0] + children[0]; c++) total[move[c]] += visits[c];
+        }
+
+        /* @return the child of the root visited most often, or -1 if it has none. */
+        private int mostVisited() {
+            int best = -1;
+            for (int c = first[0]; c >= 0 && c < first[0] + children[0]; c++)
+                if (best == -1 || visits[c] > visits[best]) best = c;
+            return best;
+        }
+
+        /* Runs one iteration: selection, expansion, playout and backup.
+         * @return the depth of the tree node the iteration reached.
+         */
+        private int iterate(nk_TicTacToeADT b, char symbol) {
+            int node = 0;
+            int depth = 0;
+            int result = -1;      // the evalBoard() score once the game is over.
+            char s = symbol;
+            numPlayed = 0;
+            path[depth++] = 0;
+            while (result == -1) {
+                if (first[node] < 0) {
+                    /* a leaf: grow it if it was visited before, as long as the pool lasts */
+                    if ((visits[node] == 0 && node != 0) || !expand(node, b)) break;
+                }
+                node = select(node);
+                result = play(b, move[node], s);
+                path[depth++] = node;
+                s = (s == COMPUTER) ? HUMAN : COMPUTER;
+            }
+            if (result == -1) result = playout(b, s);
+
+            /* the result for 'O', 1 for a win and 0.5 for a draw */
+            float computer = result / 3 + (result == 2 ? 0.5f : 0);
+            for (int i = 0; i < depth; i++) {
+                int n = path[i];
+                visits[n]++;
+                /* the node at depth i was reached by a play of symbol when i is odd */
+                char mover = (i % 2 == 1) ? symbol : (symbol == COMPUTER ? HUMAN : COMPUTER);
+                reward[n] += (mover == COMPUTER) ? computer : 1 - computer;
+            }
+            while (numPlayed > 0) {
+                int square = played[--numPlayed];
+                b.storePlay(square / board_size, square % board_size, ' ');
+            }
+            return depth - 1;
+        }
+
+        /* Adds a child for every empty square of the board.
+         * @return false if the pool has no room for them.
+         */
+        private boolean expand(int node, nk_TicTacToeADT b) {
+            int squares = board_size * board_size;
+            int count = 0;
+            for (int square = 0; square < squares; square++)
+                if (b.squareIsEmpty(square / board_size, square % board_size)) count++;
+            if (count == 0 || size + count > move.length) return false;
+            first[node] = size;
+            children[node] = count;
+            for (int square = 0; square < squares; square++) {
+                if (!b.squareIsEmpty(square / board_size, square % board_size)) continue;
+                move[size] = square;
+                first[size] = -1;
+                visits[size] = 0;
+                reward[size] = 0;
+                size++;
+            }
+            return true;
+        }
+
+        /* @return the child of an expanded node with the best upper confidence
+         *    bound; a child never visited comes first. */
+        private int select(int node) {
+            double logVisits = Math.log(Math.max(visits[node], 1));
+            int best = first[node];
+            double bestBound = -1;
+            for (int c = first[node]; c < first[node] + children[node]; c++) {
+                if (visits[c] == 0) return c;
+                double bound = reward[c] / visits[c] + EXPLORATION * Math.sqrt(logVisits / visits[c]);
+                if (bound > bestBound) {
+                    best = c;
+                    bestBound = bound;
+                }
+            }
+            return best;
+        }
+
+        /* Finishes the game from the board, choosing plays at random.
+         * @param s the player to move.
+         * @return the evalBoard() score of the finished game.
+         */
+        private int playout(nk_TicTacToeADT b, char s) {
+            int count = 0;
+            for (int square = 0; square < empty.length; square++)
+                if (b.squareIsEmpty(square / board_size, square % board_size)) {
+                    emptyIndex[square] = count;
+                    empty[count++] = square;
+                }
+            while (true) {
+                char opponent = (s == COMPUTER) ? HUMAN : COMPUTER;
+                int square;
+                if (threats && (b.winningSquares(s, found) > 0 || b.winningSquares(opponent, found) > 0))
+                    square = found[0];
+                else square = empty[random(count)];
+
+                /* move the last empty square into the played one's place */
+                int last = empty[--count];
+                empty[emptyIndex[square]] = last;
+                emptyIndex[last] = emptyIndex[square];
+
+                int result = play(b, square, s);
+                if (result != -1) return result;
+                s = opponent;
+            }
+        }
+
+        /* Plays a square and remembers it, so that it is undone.
+         * @return the evalBoard() score if the play ends the game, -1 otherwise.
+         */
+        private int play(nk_TicTacToeADT b, int square, char s) {
+            b.storePlay(square / board_size, square % board_size, s);
+            played[numPlayed++] = square;
+            if (b.wins(s)) return (s == COMPUTER) ? 3 : 0;
+            if (b.isDraw()) return 2;
+            return -1;
+        }
+
+        /* @return a pseudo-random number in [0, n), from a xorshift generator. */
+        private int random(int n) {
+            seed ^= seed << 13;
+            seed ^= seed >>> 7;
+            seed ^= seed << 17;
+            return (int) (((seed >>> 33) * n) >>> 31);
+        }
+    }
+}
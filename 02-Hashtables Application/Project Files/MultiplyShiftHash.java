@@ -0,0 +1,29 @@
+/* This class implements an FxHash-style hash function: each character is
+ * folded into the state with a rotate, an xor and a multiplication by a
+ * large odd constant. The state is reduced to a position with a single
+ * multiply-high instead of a modulo on every character.
+ */
+public class MultiplyShiftHash implements HashFunction {
+    private static final int SEED = 0x9E3779B9; // 2^32 divided by the golden ratio.
+
+    /* @param key the configuration to hash.
+     * @param tableSize the number of positions on the table.
+     * @return a position in [0, tableSize).
+     */
+    public int hash(String key, int tableSize) {
+        int h = 0;
+        for (int i = 0; i < key.length(); i++) {
+            h = (Integer.rotateLeft(h, 5) ^ key.charAt(i)) * SEED;
+        }
+        h ^= h >>> 16;
+        /* The high 32 bits of h * tableSize are uniform in [0, tableSize). */
+        return (int) (((h & 0xFFFFFFFFL) * tableSize) >>> 32);
+    }
+
+    /* @param minimum the smallest acceptable table size.
+     * @return minimum, since any size works with the multiply-high reduction.
+     */
+    public int tableSize(int minimum) {
+        return minimum;
+    }
+}
@@ -0,0 +1,310 @@
+import java.util.Arrays;
+
+/* This class implements the Dictionary ADT using open addressing
+ * with linear probing. Keys and scores are kept in two parallel arrays,
+ * so no node object is allocated per stored Record.
+ * PackedKeys are kept apart in a PackedTable, their words in a parallel
+ * long array, so they are stored and compared without a String. A Record
+ * is found by either kind of key; the other kind is only looked at once
+ * the dictionary holds some of it.
+ */
+public class OpenDictionary implements DictionaryADT {
+    private static final int MIN_CAPACITY = 16;
+    private static final int MAX_CAPACITY = 1 << 30; // the largest power of two an array can hold.
+    private String[] keys;  // the configurations, null marks an empty slot.
+    private int[] scores;   // scores[i] is the score associated with keys[i].
+    private int mask;       // capacity - 1, the capacity is always a power of two.
+    private int numRecords; // the number of records stored in the dictionary.
+    private int threshold;  // the table grows once numRecords exceeds this value.
+    private PackedTable packed; // the packed keys and their scores, made by the first one inserted.
+
+    /* Class Constructor
+     * @param size the expected number of records. The table is rounded up
+     *    to a power of two that holds this many records below a 0.75 load factor.
+     * @throws DictionaryException if the table cannot hold this many records.
+     */
+    public OpenDictionary(int size) {
+        allocate(capacityFor(size));
+        numRecords = 0;
+    }
+
+    /* Mutator Method
+     * This method stores the Record's configuration and score in the first empty
+     * slot found by probing linearly from the configuration's home slot.
+     * @param pair a Record instance containing configuration and score.
+     * @return 0 if the home slot was empty, 1 if probing was needed.
+     * @throws DictionaryException if the configuration already exists in the dictionary,
+     *    or if the table is full and cannot grow.
+     */
+    public int insert(Record pair) throws DictionaryException {
+        if (packedHolds(pair.getConfig())) throw new DictionaryException();
+        if (numRecords >= threshold) resize(capacityFor(numRecords + 1L));
+        return insertAt(pair, slotOf(pair.getConfig()));
+    }
+
+    /* Mutator Method
+     * The key's words are stored in the packed table, without a String.
+     * @param key the packed configuration to store.
+     * @param score the score associated with the configuration.
+     * @return 0 if the home slot was empty, 1 if probing was needed.
+     * @throws DictionaryException if the configuration already exists in the dictionary.
+     * @throws IllegalArgumentException if the key is for a board of another size
+     *    than the packed keys already stored.
+     */
+    public int insert(PackedKey key, int score) throws DictionaryException {
+        if (numRecords > 0 && find(key.toConfig()) != -1) throw new DictionaryException();
+        if (packed == null) packed = new PackedTable(key.squares(), MIN_CAPACITY, false);
+        return packed.insert(key, score);
+    }
+
+    /* Mutator Method
+     * This method inserts many Records at once. The table is first grown to hold
+     * all of them, then the Records are inserted in the order of their home slots,
+     * probing from the slots computed here.
+     * @param pairs the Records to insert.
+     * @return the number of Records that needed probing.
+     * @throws DictionaryException if a configuration already exists in the dictionary
+     *    or appears twice in pairs. The Records before it in home slot order remain,
+     *    so which of the others were inserted is unspecified. Also thrown, before any
+     *    Record is inserted, if the table cannot hold all of them.
+     */
+    public int insertAll(Record[] pairs) throws DictionaryException {
+        int capacity = capacityFor((long) numRecords + pairs.length + 1);
+        if (capacity > keys.length) resize(capacity);
+        long[] order = new long[pairs.length];
+        for (int i = 0; i < pairs.length; i++) order[i] = ((long) slotOf(pairs[i].getConfig()) << 32) | i;
+        Arrays.sort(order);
+        int probed = 0;
+        for (int i = 0; i < order.length; i++) {
+            Record pair = pairs[(int) order[i]];
+            if (packedHolds(pair.getConfig())) throw new DictionaryException();
+            probed += insertAt(pair, (int) (order[i] >>> 32));
+        }
+        return probed;
+    }
+
+    /* Mutator Method
+     * This method removes a configuration and shifts back the records that follow it
+     * in the same probe run, so no tombstones are left behind.
+     * @param config the configuration to locate on the table and remove.
+     * @throws DictionaryException if the configuration cannot be found.
+     */
+    public void remove(String config) throws DictionaryException {
+        int i = find(config);
+        if (i != -1) removeAt(i);
+        else {
+            PackedKey key = packedKey(config);
+            if (key == null || !packed.remove(key)) throw new DictionaryException();
+        }
+    }
+
+    /* Mutator Method
+     * @param key the packed configuration to locate and remove.
+     * @throws DictionaryException if the configuration cannot be found.
+     */
+    public void remove(PackedKey key) throws DictionaryException {
+        if (packed != null && packed.remove(key)) return;
+        int i = (numRecords == 0) ? -1 : find(key.toConfig());
+        if (i == -1) throw new DictionaryException();
+        removeAt(i);
+    }
+
+    /* Accessor Method
+     * @param config is the key used in searching for the score.
+     * @return the score associated with the configuration, or -1 if not found.
+     */
+    public int get(String config) {
+        int i = find(config);
+        if (i == -1) return packedScore(config);
+        return scores[i];
+    }
+
+    /* Accessor Method
+     * @param key the packed configuration searched for.
+     * @return the score associated with the configuration, or -1 if not found.
+     */
+    public int get(PackedKey key) {
+        int score = (packed == null) ? -1 : packed.get(key);
+        if (score != -1 || numRecords == 0) return score;
+        int i = find(key.toConfig());
+        return (i == -1) ? -1 : scores[i];
+    }
+
+    /* Helper Method
+     * This method removes the record in a slot and shifts back the records that
+     * follow it in the same probe run.
+     * @param i a slot holding a configuration.
+     */
+    private void removeAt(int i) {
+        int hole = i;
+        int j = (i + 1) & mask;
+        while (keys[j] != null) {
+            int home = slotOf(keys[j]);
+            /* keys[j] may fill the hole only if its home slot is not in (hole, j]. */
+            if (((j - home) & mask) >= ((j - hole) & mask)) {
+                keys[hole] = keys[j];
+                scores[hole] = scores[j];
+                hole = j;
+            }
+            j = (j + 1) & mask;
+        }
+        keys[hole] = null;
+        numRecords--;
+    }
+
+    /* Accessor Method
+     * This method looks up many configurations at once, in the order of their home slots,
+     * probing from the slots computed here.
+     * @param configs the configurations to look up.
+     * @param scores receives in scores[i] the score of configs[i], or -1 if it is not found.
+     */
+    public void getAll(String[] configs, int[] scores) {
+        long[] order = new long[configs.length];
+        for (int i = 0; i < configs.length; i++) order[i] = ((long) slotOf(configs[i]) << 32) | i;
+        Arrays.sort(order);
+        for (int i = 0; i < order.length; i++) {
+            int k = (int) order[i];
+            int slot = find(configs[k], (int) (order[i] >>> 32));
+            scores[k] = (slot == -1) ? packedScore(configs[k]) : this.scores[slot];
+        }
+    }
+
+    /* Accessor Method
+     * @return the number of Record instances in the Dictionary.
+     */
+    public int numElements() {
+        return numRecords + ((packed == null) ? 0 : packed.size());
+    }
+
+    /* Accessor Method
+     * @return the number of slots in the table of configuration Strings.
+     */
+    public int capacity() {
+        return keys.length;
+    }
+
+    /* Helper Method
+     * This method maps a configuration to its home slot. String caches its own
+     * hash code, so repeated lookups of the same key only pay for the mixing step.
+     * @param config the configuration to hash.
+     * @return a slot index in [0, capacity).
+     */
+    private int slotOf(String config) {
+        int h = config.hashCode() * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & mask;
+    }
+
+    /* Helper Method
+     * @param config a configuration.
+     * @return the packed key of the configuration, or null if the packed table is
+     *    empty or cannot hold it. Nothing is packed while the packed table is empty.
+     */
+    private PackedKey packedKey(String config) {
+        return (packed == null || packed.size() == 0) ? null : packed.keyOf(config);
+    }
+
+    /* Helper Method
+     * @param config a configuration.
+     * @return true if the packed key of the configuration is stored.
+     */
+    private boolean packedHolds(String config) {
+        PackedKey key = packedKey(config);
+        return key != null && packed.contains(key);
+    }
+
+    /* Helper Method
+     * @param config a configuration.
+     * @return the score stored under the packed key of the configuration, or -1 if not found.
+     */
+    private int packedScore(String config) {
+        PackedKey key = packedKey(config);
+        return (key == null) ? -1 : packed.get(key);
+    }
+
+    /* Helper Method
+     * @param config the configuration to search for.
+     * @return the slot holding the configuration, or -1 if not found.
+     */
+    private int find(String config) {
+        return find(config, slotOf(config));
+    }
+
+    /* Helper Method
+     * @param config the configuration to search for.
+     * @param home the home slot of the configuration.
+     * @return the slot holding the configuration, or -1 if not found.
+     */
+    private int find(String config, int home) {
+        int i = home;
+        while (keys[i] != null) {
+            if (keys[i].equals(config)) return i;
+            i = (i + 1) & mask;
+        }
+        return -1;
+    }
+
+    /* Helper Method
+     * This method stores a Record in the first empty slot from its home slot.
+     * The table must have room for it.
+     * @param pair a Record instance containing configuration and score.
+     * @param home the home slot of the configuration.
+     * @return 0 if the home slot was empty, 1 if probing was needed.
+     * @throws DictionaryException if the configuration already exists in the dictionary.
+     */
+    private int insertAt(Record pair, int home) throws DictionaryException {
+        String config = pair.getConfig();
+        int i = home;
+        while (keys[i] != null) {
+            if (keys[i].equals(config)) throw new DictionaryException();
+            i = (i + 1) & mask;
+        }
+        keys[i] = config;
+        scores[i] = pair.getScore();
+        numRecords++;
+        return (i == home) ? 0 : 1;
+    }
+
+    /* Helper Method
+     * The capacity is computed in a long, so that sizes near Integer.MAX_VALUE
+     * cannot overflow it.
+     * @param records the number of records the table must hold.
+     * @return the smallest power of two, at least MIN_CAPACITY, that holds this
+     *    many records below a 0.75 load factor.
+     * @throws DictionaryException if the capacity would exceed MAX_CAPACITY.
+     */
+    private static int capacityFor(long records) {
+        long capacity = MIN_CAPACITY;
+        while (capacity * 3 / 4 < records) capacity <<= 1;
+        if (capacity > MAX_CAPACITY) throw new DictionaryException();
+        return (int) capacity;
+    }
+
+    /* Helper Method
+     * This method allocates empty arrays of the given capacity.
+     * @param capacity a power of two.
+     */
+    private void allocate(int capacity) {
+        keys = new String[capacity];
+        scores = new int[capacity];
+        mask = capacity - 1;
+        threshold = capacity * 3 / 4;
+    }
+
+    /* Helper Method
+     * This method moves every record into a table of the given capacity.
+     * @param capacity the new capacity, a power of two.
+     */
+    private void resize(int capacity) {
+        String[] oldKeys = keys;
+        int[] oldScores = scores;
+        allocate(capacity);
+        for (int k = 0; k < oldKeys.length; k++) {
+            if (oldKeys[k] != null) {
+                int i = slotOf(oldKeys[k]);
+                while (keys[i] != null) i = (i + 1) & mask;
+                keys[i] = oldKeys[k];
+                scores[i] = oldScores[k];
+            }
+        }
+    }
+}
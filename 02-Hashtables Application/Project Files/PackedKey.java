@@ -0,0 +1,105 @@
+import java.util.Arrays;
+
+/* This class holds a board configuration with 2 bits per square, 32 squares
+ * to a long word: 0 for ' ', 1 for 'X' and 2 for 'O', square i in bits
+ * 2 * (i % 32) of word i / 32. A 6x6 board fits in two words, where its
+ * String configuration takes 36 chars. Keys are compared and hashed a word
+ * at a time, and the hash code is computed once, when the key is made.
+ */
+public final class PackedKey {
+    private static final long MIX = 0x9E3779B97F4A7C15L; // 2^64 divided by the golden ratio.
+
+    private final long[] words;
+    private final int squares;
+    private final int hash;
+
+    /* Class Constructor
+     * @param config a configuration of 'X', 'O' and ' ' characters, as made by nk_TicTacToe.
+     * @throws IllegalArgumentException if the configuration holds another character.
+     */
+    public PackedKey(String config) {
+        squares = config.length();
+        words = new long[wordsFor(squares)];
+        for (int square = 0; square < squares; square++) {
+            words[square >> 5] |= (long) code(config.charAt(square)) << (2 * (square & 31));
+        }
+        hash = mix(words);
+    }
+
+    /* Class Constructor
+     * @param words packed squares, as described above. They are copied.
+     * @param squares the number of squares of the board.
+     */
+    PackedKey(long[] words, int squares) {
+        this.words = words.clone();
+        this.squares = squares;
+        hash = mix(words);
+    }
+
+    /* @param squares the number of squares of a board.
+     * @return the number of words holding the board.
+     */
+    public static int wordsFor(int squares) {
+        return (squares + 31) >> 5;
+    }
+
+    /* @param symbol 'X', 'O' or ' '.
+     * @return the 2-bit code of the symbol.
+     * @throws IllegalArgumentException if symbol is not one of the above.
+     */
+    public static int code(char symbol) {
+        switch (symbol) {
+            case ' ': return 0;
+            case 'X': return 1;
+            case 'O': return 2;
+            default: throw new IllegalArgumentException("invalid square '" + symbol + "'");
+        }
+    }
+
+    /* @return the configuration String of the board held by this key. */
+    public String toConfig() {
+        char[] config = new char[squares];
+        for (int square = 0; square < squares; square++) {
+            int c = (int) (words[square >> 5] >>> (2 * (square & 31))) & 3;
+            config[square] = (c == 1) ? 'X' : (c == 2) ? 'O' : ' ';
+        }
+        return new String(config);
+    }
+
+    /* @return the number of squares of the board held by this key. */
+    public int squares() {
+        return squares;
+    }
+
+    /* @param i the index of a word.
+     * @return the word, holding squares 32 * i to 32 * i + 31.
+     */
+    long word(int i) {
+        return words[i];
+    }
+
+    /* @param other the object to compare with.
+     * @return true if other is a PackedKey holding the same squares.
+     */
+    public boolean equals(Object other) {
+        if (this == other) return true;
+        if (!(other instanceof PackedKey)) return false;
+        PackedKey key = (PackedKey) other;
+        return hash == key.hash && squares == key.squares && Arrays.equals(words, key.words);
+    }
+
+    /* @return a hash code mixing every word, with all 32 bits usable. */
+    public int hashCode() {
+        return hash;
+    }
+
+    /* Helper Method
+     * @param words packed squares.
+     * @return their hash code.
+     */
+    private static int mix(long[] words) {
+        long h = words.length;
+        for (int i = 0; i < words.length; i++) h = (h ^ words[i]) * MIX;
+        return (int) (h ^ (h >>> 32));
+    }
+}
@@ -0,0 +1,239 @@
+/* This class stores PackedKeys and their scores natively for the dictionaries:
+ * the words of every key sit in one flat long array, beside parallel arrays
+ * of hash codes and scores, so a stored key costs its words and two ints and
+ * no object. Keys are found by linear probing and compared by hash code, then
+ * word by word. Every key of a table is for boards of the same size.
+ *
+ * In lossy mode a key is only ever stored in its home slot, which an insert
+ * always takes over, and the table never grows.
+ */
+final class PackedTable {
+    private static final int MIN_CAPACITY = 16;
+    private static final int MAX_WORDS = 1 << 30; // the most words the key array is let hold.
+
+    private final int squares; // the number of squares of the boards stored.
+    private final int words;   // the words of a key.
+    private final boolean lossy;
+    private final int maxCapacity; // the largest power of two whose keys fit in MAX_WORDS.
+    private long[] keys;       // keys[words * i] to keys[words * i + words - 1] are the words of slot i.
+    private int[] hashes;      // the hash code of the key in slot i, never 0; 0 marks an empty slot.
+    private int[] scores;      // scores[i] is the score associated with the key of slot i.
+    private int mask;          // capacity - 1, the capacity is always a power of two.
+    private int count;         // the number of keys stored.
+
+    /* Class Constructor
+     * @param squares the number of squares of the boards stored.
+     * @param capacity the initial number of slots, rounded up to a power of two;
+     *    in lossy mode, the number of slots for good.
+     * @param lossy true to keep every key in its home slot, replacing on every insert.
+     */
+    PackedTable(int squares, int capacity, boolean lossy) {
+        this.squares = squares;
+        this.words = PackedKey.wordsFor(squares);
+        this.lossy = lossy;
+        maxCapacity = Integer.highestOneBit(MAX_WORDS / words);
+        int slots = MIN_CAPACITY;
+        while (slots < capacity && slots < maxCapacity) slots <<= 1;
+        allocate(slots);
+    }
+
+    /* Mutator Method
+     * @param key the packed configuration to store.
+     * @param score the score associated with the configuration.
+     * @return 0 if the home slot was empty, 1 if probing was needed; in lossy
+     *    mode 1 means the key replaced another one.
+     * @throws DictionaryException if the key is already stored and the table is
+     *    not lossy, or the table cannot grow.
+     * @throws IllegalArgumentException if the key is for a board of another size.
+     */
+    int insert(PackedKey key, int score) throws DictionaryException {
+        if (key.squares() != squares)
+            throw new IllegalArgumentException("a " + key.squares() + " square key in a table of " + squares);
+        int h = hashOf(key);
+        int i = h & mask;
+        if (lossy) {
+            boolean replaced = hashes[i] != 0;
+            if (!replaced) count++;
+            store(i, key, h, score);
+            return replaced ? 1 : 0;
+        }
+        if (count >= (mask + 1) * 3 / 4) {
+            if (mask + 1 == maxCapacity) throw new DictionaryException();
+            resize((mask + 1) << 1);
+            i = h & mask;
+        }
+        int home = i;
+        while (hashes[i] != 0) {
+            if (hashes[i] == h && matches(i, key)) throw new DictionaryException();
+            i = (i + 1) & mask;
+        }
+        store(i, key, h, score);
+        count++;
+        return (i == home) ? 0 : 1;
+    }
+
+    /* Mutator Method
+     * This method removes a key and shifts back the keys that follow it in the
+     * same probe run, so no tombstones are left behind.
+     * @param key the packed configuration to remove.
+     * @return true if the key was found and removed, false if it is not stored.
+     */
+    boolean remove(PackedKey key) {
+        int i = find(key);
+        if (i == -1) return false;
+        count--;
+        if (lossy) {
+            hashes[i] = 0;
+            return true;
+        }
+        int hole = i;
+        int j = (i + 1) & mask;
+        while (hashes[j] != 0) {
+            int home = hashes[j] & mask;
+            /* slot j may fill the hole only if its home slot is not in (hole, j]. */
+            if (((j - home) & mask) >= ((j - hole) & mask)) {
+                System.arraycopy(keys, j * words, keys, hole * words, words);
+                hashes[hole] = hashes[j];
+                scores[hole] = scores[j];
+                hole = j;
+            }
+            j = (j + 1) & mask;
+        }
+        hashes[hole] = 0;
+        return true;
+    }
+
+    /* Accessor Method
+     * @param key the packed configuration searched for.
+     * @return the score associated with the key, or -1 if not found.
+     */
+    int get(PackedKey key) {
+        int i = find(key);
+        return (i == -1) ? -1 : scores[i];
+    }
+
+    /* Accessor Method
+     * @param key the packed configuration searched for.
+     * @return true if the key is stored.
+     */
+    boolean contains(PackedKey key) {
+        return find(key) != -1;
+    }
+
+    /* Accessor Method
+     * @param config a configuration.
+     * @return the key of the configuration, or null if it cannot be in this table,
+     *    being for a board of another size or holding another character.
+     */
+    PackedKey keyOf(String config) {
+        return keyOf(config, squares);
+    }
+
+    /* Accessor Method
+     * @param config a configuration.
+     * @param squares the number of squares of the boards of a table.
+     * @return the key of the configuration, or null if it is for a board of another
+     *    size or holds another character.
+     */
+    static PackedKey keyOf(String config, int squares) {
+        if (config.length() != squares) return null;
+        for (int i = 0; i < squares; i++) {
+            char c = config.charAt(i);
+            if (c != ' ' && c != 'X' && c != 'O') return null;
+        }
+        return new PackedKey(config);
+    }
+
+    /* Accessor Method
+     * @return the number of keys stored.
+     */
+    int size() {
+        return count;
+    }
+
+    /* Accessor Method
+     * @return the number of bytes of the arrays of the table.
+     */
+    long bytes() {
+        return 3 * 16 + (long) hashes.length * (8 * words + 4 + 4);
+    }
+
+    /* Helper Method
+     * @param key a packed configuration.
+     * @return the slot holding the key, or -1 if not found.
+     */
+    private int find(PackedKey key) {
+        if (key.squares() != squares) return -1;
+        int h = hashOf(key);
+        int i = h & mask;
+        while (hashes[i] != 0) {
+            if (hashes[i] == h && matches(i, key)) return i;
+            if (lossy) return -1;
+            i = (i + 1) & mask;
+        }
+        return -1;
+    }
+
+    /* Helper Method
+     * @param i an occupied slot.
+     * @param key a packed configuration of the size of the table.
+     * @return true if slot i holds the words of the key.
+     */
+    private boolean matches(int i, PackedKey key) {
+        int first = i * words;
+        for (int w = 0; w < words; w++) if (keys[first + w] != key.word(w)) return false;
+        return true;
+    }
+
+    /* Helper Method
+     * @param i a slot.
+     * @param key the key to store in it.
+     * @param h the hash code of the key, from hashOf().
+     * @param score the score associated with the key.
+     */
+    private void store(int i, PackedKey key, int h, int score) {
+        int first = i * words;
+        for (int w = 0; w < words; w++) keys[first + w] = key.word(w);
+        hashes[i] = h;
+        scores[i] = score;
+    }
+
+    /* Helper Method
+     * @param key a packed configuration.
+     * @return its hash code, which is already mixed, made non-zero.
+     */
+    private static int hashOf(PackedKey key) {
+        int h = key.hashCode();
+        return (h == 0) ? 1 : h;
+    }
+
+    /* Helper Method
+     * @param capacity a power of two.
+     */
+    private void allocate(int capacity) {
+        keys = new long[capacity * words];
+        hashes = new int[capacity];
+        scores = new int[capacity];
+        mask = capacity - 1;
+    }
+
+    /* Helper Method
+     * This method moves every key into a table of the given capacity.
+     * @param capacity the new capacity, a power of two.
+     */
+    private void resize(int capacity) {
+        long[] oldKeys = keys;
+        int[] oldHashes = hashes;
+        int[] oldScores = scores;
+        allocate(capacity);
+        for (int k = 0; k < oldHashes.length; k++) {
+            if (oldHashes[k] != 0) {
+                int i = oldHashes[k] & mask;
+                while (hashes[i] != 0) i = (i + 1) & mask;
+                System.arraycopy(oldKeys, k * words, keys, i * words, words);
+                hashes[i] = oldHashes[k];
+                scores[i] = oldScores[k];
+            }
+        }
+    }
+}
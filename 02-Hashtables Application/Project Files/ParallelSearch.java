@@ -0,0 +1,277 @@
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/* This class splits the game-tree search at the root: every play available
+ * to the player to move is searched as a separate task on a ForkJoinPool,
+ * each on its own copy of the board. All tasks share one transposition
+ * table, so a position scored by one thread is not searched again by another.
+ * The best root score found so far is shared too, and tasks that start
+ * later search with that tighter alpha/beta window.
+ */
+public class ParallelSearch implements SearchEngine {
+    private nk_TicTacToeADT t;           // the board being searched.
+    private TranspositionTable table;    // the positions scored so far, shared by all tasks.
+    private ForkJoinPool pool;
+    private int board_size;
+    private int max_level;               // the deepest level of the tree explored.
+    private boolean ordering = true;     // false to try plays in row-major order.
+    private boolean keepTable;           // true to keep the table's positions from one move to the next.
+    private boolean symmetry;            // true to share table entries between symmetric positions.
+    private int unit = 1;                // the internal score of one step of evalBoard(), as in AlphaBetaSearch.
+    private boolean threats;             // true to settle immediate wins and threats without searching.
+    private AtomicLong nodes = new AtomicLong(); // the positions searched by all tasks.
+    private volatile boolean cancelled;  // set by stop(), possibly from another thread.
+    private Set<AlphaBetaSearch> running = ConcurrentHashMap.newKeySet(); // the searches of the tasks under way.
+    private SearchListener listener;     // told of each better root play, or null.
+    private PosPlay reported;            // the best play reported to the listener so far, with its internal score.
+    private SearchStats stats;           // receives the counts of every task's search, or null.
+
+    /* Class Constructor
+     * @param t the board to search, which is restored after every search.
+     * @param board_size the dimension of the board.
+     * @param max_level the maximum level of the game tree that will be explored.
+     * @param threads the number of threads to search with.
+     */
+    public ParallelSearch(nk_TicTacToeADT t, int board_size, int max_level, int threads) {
+        this(t, board_size, max_level, threads, t.createTranspositionTable());
+    }
+
+    /* Class Constructor
+     * @param t the board to search, which is restored after every search.
+     * @param board_size the dimension of the board.
+     * @param max_level the maximum level of the game tree that will be explored.
+     * @param threads the number of threads to search with.
+     * @param table the transposition table shared by the search tasks.
+     */
+    public ParallelSearch(nk_TicTacToeADT t, int board_size, int max_level, int threads,
+                          TranspositionTable table) {
+        this.t = t;
+        this.board_size = board_size;
+        this.max_level = max_level;
+        this.table = table;
+        pool = new ForkJoinPool(threads);
+    }
+
+    /* This method chooses the best play for the given player on the current board.
+     * Like AlphaBetaSearch, a cleared table is used for every move unless
+     * setKeepTable(true) was called. If stop() is called, the best play among
+     * the root plays scored so far is returned.
+     * @param symbol the player to move, COMPUTER or HUMAN.
+     * @return the best play and its score.
+     */
+    public PosPlay computerPlay(char symbol) {
+        if (!keepTable) table.clear();
+        nodes.set(0);
+        reported = null;
+        boolean maximizing = (symbol == AlphaBetaSearch.COMPUTER);
+        AtomicInteger bound = new AtomicInteger(maximizing ? -1 : 4 * unit);
+
+        List<RootPlay> plays = new ArrayList<RootPlay>();
+        HashSet<Long> seen = new HashSet<Long>();
+        for (int row = 0; row < board_size; row++)
+            for (int col = 0; col < board_size; col++)
+                if (t.squareIsEmpty(row, col)) {
+                    if (symmetry) {
+                        /* a play whose result is symmetric to an earlier one scores the same */
+                        t.storePlay(row, col, symbol);
+                        boolean repeated = !seen.add(t.getCanonicalKey());
+                        t.storePlay(row, col, ' ');
+                        if (repeated) continue;
+                    }
+                    plays.add(new RootPlay(row, col, symbol, bound));
+                }
+        pool.invoke(new RootSplit(plays));
+
+        /* A play searched with a window its score did not beat only has a bound
+           on its score; the first play with the best exact score is chosen. */
+        PosPlay best = new PosPlay(maximizing ? -1 : 4 * unit, -1, -1);
+        for (RootPlay play : plays) {
+            if (!play.exact) continue;
+            if ((maximizing && play.score > best.getScore()) ||
+                (!maximizing && play.score < best.getScore()))
+                best = new PosPlay(play.score, play.row, play.col);
+        }
+        if (best.getRow() == -1 && !plays.isEmpty()) {
+            /* stopped before any play was scored: take the first one */
+            return new PosPlay(1, plays.get(0).row, plays.get(0).col);
+        }
+        return new PosPlay(AlphaBetaSearch.evalScore(best.getScore(), unit), best.getRow(), best.getCol());
+    }
+
+    /* Accessor Method
+     * @return the number of positions searched by the last call to computerPlay.
+     */
+    public long getNodes() {
+        return nodes.get();
+    }
+
+    /* Mutator Method
+     * @param keepTable true to keep the table from one move to the next.
+     */
+    public void setKeepTable(boolean keepTable) {
+        this.keepTable = keepTable;
+    }
+
+    /* Mutator Method
+     * With symmetry on, root plays leading to symmetric positions are searched once.
+     * @param symmetry true to share table entries between symmetric positions.
+     */
+    public void setSymmetry(boolean symmetry) {
+        this.symmetry = symmetry;
+    }
+
+    /* Mutator Method
+     * @param graded true to have every task grade the positions its depth limit
+     *    cuts off by their open lines.
+     */
+    public void setGradedEvaluation(boolean graded) {
+        unit = graded ? AlphaBetaSearch.GRADED_UNIT : 1;
+    }
+
+    /* Mutator Method
+     * @param threats true to have every task settle immediate wins and threats
+     *    without searching them.
+     */
+    public void setThreats(boolean threats) {
+        this.threats = threats;
+    }
+
+    /* Mutator Method
+     * @param ordering false to have every task try plays in row-major order.
+     */
+    public void setMoveOrdering(boolean ordering) {
+        this.ordering = ordering;
+    }
+
+    /* Mutator Method
+     * @param listener the listener told of each better play found at the root, or null.
+     *    It is called on the threads of the pool.
+     */
+    public void setSearchListener(SearchListener listener) {
+        this.listener = listener;
+    }
+
+    /* Mutator Method
+     * @param stats the statistics each task's search adds its counts to, or null.
+     */
+    public void setStats(SearchStats stats) {
+        this.stats = stats;
+    }
+
+    /* This method makes the running search return as soon as possible with
+     * the best play found so far. It may be called from any thread.
+     */
+    public void stop() {
+        cancelled = true;
+        for (AlphaBetaSearch search : running) search.stop();
+    }
+
+    /* This method withdraws an earlier stop(), so that the next search runs.
+     * Call it before handing the search to another thread.
+     */
+    public void clearStop() {
+        cancelled = false;
+    }
+
+    /* Helper Method
+     * This method tells the listener of a root play if it is the best one so far.
+     * @param play the root play with an exact score.
+     * @param maximizing true if the computer is to move at the root.
+     */
+    private synchronized void report(RootPlay play, boolean maximizing) {
+        if (listener == null) return;
+        if (reported == null || (maximizing && play.score > reported.getScore())
+                             || (!maximizing && play.score < reported.getScore())) {
+            reported = new PosPlay(play.score, play.row, play.col);
+            listener.searchProgress(max_level, nodes.get(),
+                new PosPlay(AlphaBetaSearch.evalScore(play.score, unit), play.row, play.col));
+        }
+    }
+
+    /* Mutator Method
+     * This method stops the threads of the pool once the current search ends.
+     */
+    public void shutdown() {
+        pool.shutdown();
+    }
+
+    /* Accessor Method
+     * @return the transposition table shared by the search tasks.
+     */
+    public TranspositionTable getTable() {
+        return table;
+    }
+
+    /* The task that forks one RootPlay per available play and waits for them. */
+    private static class RootSplit extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private List<RootPlay> plays;
+
+        RootSplit(List<RootPlay> plays) {
+            this.plays = plays;
+        }
+
+        protected void compute() {
+            invokeAll(plays);
+        }
+    }
+
+    /* The task that scores a single play at the root of the game tree. */
+    private class RootPlay extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private int row, col;       // the play searched by this task.
+        private char symbol;        // the player making the play.
+        private AtomicInteger best; // the best exact root score found by any task.
+        int score;                  // the score of the play.
+        boolean exact;              // true if score is exact rather than a bound.
+
+        RootPlay(int row, int col, char symbol, AtomicInteger best) {
+            this.row = row;
+            this.col = col;
+            this.symbol = symbol;
+            this.best = best;
+        }
+
+        protected void compute() {
+            if (cancelled) return;
+            boolean maximizing = (symbol == AlphaBetaSearch.COMPUTER);
+            char opponent = maximizing ? AlphaBetaSearch.HUMAN : AlphaBetaSearch.COMPUTER;
+            nk_TicTacToeADT board = t.copy();
+            board.storePlay(row, col, symbol);
+
+            if (board.wins(symbol) || board.isDraw() || max_level <= 0) {
+                score = AlphaBetaSearch.leafScore(board, unit);
+                exact = true;
+            }
+            else {
+                int highest_score = maximizing ? best.get() : -1;
+                int lowest_score = maximizing ? 4 * unit : best.get();
+                AlphaBetaSearch search = new AlphaBetaSearch(board, board_size, max_level, table);
+                search.setMoveOrdering(ordering);
+                search.setSymmetry(symmetry);
+                search.setGradedEvaluation(unit > 1);
+                search.setThreats(threats);
+                running.add(search);
+                if (cancelled) search.stop();  // stop() may have missed the search
+                score = PosPlay.score(search.search(opponent, highest_score, lowest_score, 1));
+                running.remove(search);
+                nodes.addAndGet(search.getNodes());
+                search.report(stats);
+                exact = !search.wasStopped() && (maximizing ? score > highest_score : score < lowest_score);
+            }
+
+            if (exact) {
+                if (maximizing) best.accumulateAndGet(score, Math::max);
+                else best.accumulateAndGet(score, Math::min);
+                report(this, maximizing);
+            }
+        }
+    }
+}
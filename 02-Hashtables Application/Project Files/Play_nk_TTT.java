@@ -2,6 +2,9 @@ import java.awt.*;
 import java.awt.event.*;
 import javax.swing.*;
 import java.io.*;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
 
 public class Play_nk_TTT extends JFrame {
      private final char COMPUTER = 'O';
@@ -9,15 +12,96 @@ public class Play_nk_TTT extends JFrame {
 
      private JButton [][] gameDisplay;/* Game board */
      private nk_TicTacToe t;       
+     private nk_TicTacToeADT board; /* Board the game is played on: t, or
+                                       a BitboardTicTacToe               */
      private int board_size;    /* Size of game board */
      private int max_level;     /* Maximum level of the game tree that
                                    will be explored                    */
-     private Dictionary configurations;
+     private DictionaryADT configurations;
+     private SearchEngine search; /* Zobrist-keyed search, or null to
+                                     use computerPlay below           */
+     private File book;           /* File the search's table is saved
+                                     to, or null                      */
+     private long bookTag;        /* Identifies the game in the book  */
+     private boolean packed_keys; /* Key the Dictionary by PackedKeys
+                                     instead of Strings               */
+     private boolean open_dict;   /* Search with an OpenDictionary
+                                     instead of a Dictionary          */
+     private int capacity;        /* Records the dictionary engine may
+                                     keep, or 0 for no limit          */
+     private int replacement;     /* BoundedDictionary policy used
+                                     once capacity is reached         */
+     private SwingWorker<PosPlay,String> worker; /* Search for the
+                                     computer's play under way, or null */
+     private SearchStats stats = new SearchStats(); /* What the searches
+                                     did, also published through JMX  */
+     private String engine_name;  /* Engine named in the move log     */
+     private Tablebase tablebase; /* Perfect plays probed before any
+                                     search, or null                  */
 
 
     /* Constructor. Creates a panel to represent the game board and destroys
        the panel when its window is closed.                                 */
     public Play_nk_TTT(int size, int to_win, int depth)
+    {
+        this(size, to_win, depth, new String[0]);
+    }
+
+
+    /* Constructor. The options are of the form -name=value:
+       -engine=dictionary  search with a String-keyed Dictionary (default)
+       -engine=zobrist     search with a Zobrist-keyed transposition table
+       -engine=parallel    search the plays at the root in parallel, sharing
+                           one transposition table
+       -engine=mcts        choose plays by Monte Carlo tree search, for
+                           boards too large to search exhaustively
+       -threads=n          threads used by the parallel and mcts engines
+                           (default: the number of processors)
+       -time=ms            with -engine=zobrist, deepen the search level
+                           by level until ms milliseconds have passed;
+                           depth is then the deepest level searched.
+                           With -engine=mcts, run playouts for ms
+                           milliseconds per move
+       -playouts=n         with -engine=mcts and no -time, run n playouts
+                           per move (default 20000)
+       -ordering=off       with -engine=zobrist or parallel, try plays in
+                           row-major order instead of best-first
+       -keep=off           with -engine=zobrist or parallel, clear the
+                           transposition table before every move instead
+                           of keeping it for the rest of the game
+       -book=file          load the transposition table from file if it
+                           was saved for the same board size, to_win and
+                           -eval, and save it back when the game ends
+       -eval=graded        with -engine=zobrist or parallel, grade the
+                           boards cut off at the depth limit by their open
+                           lines instead of scoring them all undecided
+       -threats=on         with -engine=zobrist or parallel, take immediate
+                           wins and forced blocks without searching other
+                           plays, and score double threats as lost; with
+                           -engine=mcts, take them in the playouts
+       -dict=chained       with -engine=dictionary, store the configurations
+                           in a Dictionary with separate chaining (default)
+       -dict=open          store them in an OpenDictionary, with open
+                           addressing and no node per configuration
+       -keys=packed        with -engine=dictionary, key the Dictionary by
+                           configurations packed 2 bits per square
+                           instead of Strings
+       -capacity=n         with -engine=dictionary, keep at most n records
+                           in a BoundedDictionary instead, replacing them
+                           by the -replace policy
+       -replace=depth      keep the records searched deepest (default)
+       -replace=always     always replace the oldest record
+       -replace=twotier    keep half by depth and half by age
+       -replace=clock      keep the records read most recently
+       -symmetry=on        treat rotations and reflections of a board as the
+                           same position when storing and looking it up
+       -board=array        keep the board in a char matrix (default)
+       -board=bitboard     keep the board in bitboards; implies -engine=zobrist
+       -tablebase=file     play the perfect play from the tablebase file
+                           written by TablebaseGenerator for the same
+                           board size and to_win; the engine only
+                           searches positions the file does not hold  */
+    public Play_nk_TTT(int size, int to_win, int depth, String [] options)
     {
         Container c = getContentPane();
 	c.setLayout(new GridLayout(size,size));  
@@ -37,19 +121,166 @@ public class Play_nk_TTT extends JFrame {
 	board_size = size;
 	max_level = depth;
         t = new nk_TicTacToe(size,to_win,depth); /* User code needed to play */
+
+	String representation = option(options, "board", "array");
+	if (representation.equals("bitboard"))
+	    board = new BitboardTicTacToe(size,to_win,depth);
+	else if (representation.equals("array"))
+	    board = t;
+	else {
+	    System.out.println("Unknown board: " + representation);
+	    System.exit(0);
+	}
+
+	/* The Dictionary search reads String configurations from t, so
+	   other boards are searched through their Zobrist keys         */
+	String engine = option(options, "engine", (board == t) ? "dictionary" : "zobrist");
+	TranspositionTable table = null;
+	boolean graded = option(options, "eval", "plain").equals("graded");
+	if (engine.equals("zobrist") || engine.equals("parallel"))
+	    table = loadBook(option(options, "book", ""), size, to_win, graded);
+	if (engine.equals("zobrist")) {
+	    AlphaBetaSearch alphaBeta = new AlphaBetaSearch(board, size, depth, table);
+	    alphaBeta.setTimeBudget(Long.parseLong(option(options, "time", "0")));
+	    search = alphaBeta;
+	}
+	else if (engine.equals("parallel")) {
+	    int threads = Integer.parseInt(option(options, "threads",
+	        Integer.toString(Runtime.getRuntime().availableProcessors())));
+	    search = new ParallelSearch(board, size, depth, threads, table);
+	}
+	else if (engine.equals("mcts")) {
+	    int threads = Integer.parseInt(option(options, "threads",
+	        Integer.toString(Runtime.getRuntime().availableProcessors())));
+	    MonteCarloSearch monteCarlo = new MonteCarloSearch(board, size, threads);
+	    monteCarlo.setTimeBudget(Long.parseLong(option(options, "time", "0")));
+	    monteCarlo.setPlayouts(Long.parseLong(option(options, "playouts",
+	        Long.toString(MonteCarloSearch.DEFAULT_PLAYOUTS))));
+	    search = monteCarlo;
+	}
+	packed_keys = option(options, "keys", "string").equals("packed");
+	String dict = option(options, "dict", "chained");
+	open_dict = dict.equals("open");
+	if (!open_dict && !dict.equals("chained")) {
+	    System.out.println("Unknown dictionary: " + dict);
+	    System.exit(0);
+	}
+	capacity = Integer.parseInt(option(options, "capacity", "0"));
+	String policy = option(options, "replace", "depth");
+	String [] policies = {"depth", "always", "twotier", "clock"};
+	replacement = Arrays.asList(policies).indexOf(policy);
+	if (replacement == -1) {
+	    System.out.println("Unknown replacement policy: " + policy);
+	    System.exit(0);
+	}
+	boolean symmetry = option(options, "symmetry", "off").equals("on");
+	t.setCanonicalConfigurations(symmetry);
+	if (search != null) {
+	    search.setSymmetry(symmetry);
+	    search.setMoveOrdering(!option(options, "ordering", "on").equals("off"));
+	    search.setKeepTable(book != null || !option(options, "keep", "on").equals("off"));
+	    search.setGradedEvaluation(graded);
+	    search.setThreats(option(options, "threats", "off").equals("on"));
+	}
+	else if (!engine.equals("dictionary")) {
+	    System.out.println("Unknown engine: " + engine);
+	    System.exit(0);
+	}
+	else if (board != t) {
+	    System.out.println("The dictionary engine needs -board=array");
+	    System.exit(0);
+	}
+
+	engine_name = engine;
+	tablebase = loadTablebase(option(options, "tablebase", ""), size, to_win);
+	if (search != null) search.setStats(stats);
+	try {
+	    stats.register("nk_TicTacToe:type=SearchStats");
+	}
+	catch (Exception e) {
+	    System.out.println("Could not publish search statistics: " + e.getMessage());
+	}
+    }
+
+
+    /* Returns the transposition table saved in the named file for this
+       board size, to_win and evaluation, or an empty table if there is
+       none, since graded scores are on another scale. The file is
+       remembered so that saveBook() can write the table back.          */
+    private TranspositionTable loadBook(String name, int size, int to_win, boolean graded)
+    {
+	TranspositionTable table = null;
+	if (!name.equals("")) {
+	    book = new File(name);
+	    bookTag = ((long) size << 32) | (graded ? 1L << 31 : 0) | to_win;
+	    try {
+		if (book.exists()) table = TranspositionTable.load(book, bookTag);
+		if (table != null)
+		    System.out.println("Loaded " + table.numElements() + " positions from " + name);
+	    }
+	    catch (IOException e) {
+		System.out.println("Could not read " + name + ": " + e.getMessage());
+	    }
+	}
+	if (table == null) table = board.createTranspositionTable();
+	return table;
+    }
+
+
+    /* Returns the tablebase in the named file, or null if there is none
+       for this board size and to_win                                  */
+    private Tablebase loadTablebase(String name, int size, int to_win)
+    {
+	if (name.equals("")) return null;
+	try {
+	    Tablebase tablebase = Tablebase.load(new File(name), size, to_win);
+	    if (tablebase == null)
+		System.out.println(name + " is not a tablebase for " + size + "x" + size
+				   + " boards and " + to_win + " inline");
+	    return tablebase;
+	}
+	catch (IOException e) {
+	    System.out.println("Could not read " + name + ": " + e.getMessage());
+	    return null;
+	}
+    }
+
+
+    /* Saves the search's transposition table to the book file, if any */
+    void saveBook()
+    {
+	if (book == null || search == null) return;
+	try {
+	    search.getTable().save(book, bookTag);
+	}
+	catch (IOException e) {
+	    System.out.println("Could not write " + book + ": " + e.getMessage());
+	}
+    }
+
+
+    /* Returns the value of option -name=value, or the given default value
+       if the option was not supplied.                                    */
+    static String option(String [] options, String name, String default_value)
+    {
+	for (int i = 0; i < options.length; i++)
+	    if (options[i].startsWith("-" + name + "="))
+		return options[i].substring(name.length() + 2);
+	return default_value;
     }
 
     
-    /* To run the program type: java PlayTTT size to_win, where 
-       size is the size of the board and to_win is the number of
-       symbols in line needed to win the game.                   */
+    /* To run the program type: java Play_nk_TTT size to_win depth [options],
+       where size is the size of the board and to_win is the number of
+       symbols in line needed to win the game. The options are described
+       in the constructor.                                                */
     public static void main(String [] args)
     {
 
         /* Check that the number of arguments is the correct one */
-	if (args.length != 3) {
+	if (args.length < 3) {
 	    System.out.println
-		("Usage: java Play_nk_TTT board-size symbols-inline-to-win depth");
+		("Usage: java Play_nk_TTT board-size symbols-inline-to-win depth [-engine=dictionary|zobrist|parallel|mcts] [-threads=n] [-time=ms] [-playouts=n] [-ordering=on|off] [-keep=on|off] [-book=file] [-eval=plain|graded] [-threats=on|off] [-dict=chained|open] [-keys=string|packed] [-capacity=n] [-replace=depth|always|twotier|clock] [-symmetry=on|off] [-board=array|bitboard] [-tablebase=file]");
 	    System.exit(0);
 	}
 
@@ -62,13 +293,16 @@ public class Play_nk_TTT extends JFrame {
 	int depth = Integer.parseInt(args[2]);
 
 	/* Create the game board and start the game */
-        JFrame f = new Play_nk_TTT(size,adjacent_to_win,depth);
+	String [] options = new String[args.length - 3];
+	System.arraycopy(args, 3, options, 0, options.length);
+        final Play_nk_TTT f = new Play_nk_TTT(size,adjacent_to_win,depth,options);
 
         f.setSize(size*100,size*100);
         f.setVisible(true);
 
         f.addWindowListener(new WindowAdapter( ) {
             public void windowClosing(WindowEvent event) {
+                f.saveBook();
                 System.exit( 0 );
             }                 
         });
@@ -81,6 +315,12 @@ public class Play_nk_TTT extends JFrame {
     private class ClickHandler implements ActionListener {
 	private int board_size;
 	private boolean game_ended = false;
+	private volatile boolean stop_requested = false; /* Stops computerPlay
+	                                                     below early      */
+	private long nodes, probes, hits;  /* Counts of computerPlay below */
+	private SearchListener progress;   /* Told of the best play at the
+	                                      root of computerPlay, or null */
+	private long [] cutoffs = new long[SearchStats.LEVELS];
 
 	/* Constructor. Save board size in instance variable */
 	public ClickHandler(int size) {
@@ -93,9 +333,15 @@ public class Play_nk_TTT extends JFrame {
             if(event.getSource() instanceof JButton) { /* Some position of the 
 							 board was selected */
 		int row = -1, col = -1;
-		PosPlay pos;
 
 		if (game_ended) System.exit(0);
+		if (worker != null) {
+		    /* The computer is still thinking: make it play the
+		       best play it has found so far                    */
+		    if (search != null) search.stop();
+		    else stop_requested = true;
+		    return;
+		}
 		/* Find out which position was selected by th eplayer */
                 for (int i = 0; i < board_size; i++) {
                     for (int j = 0; j < board_size; j++)
@@ -107,24 +353,16 @@ public class Play_nk_TTT extends JFrame {
 		    if (row != -1) break;
 		}
 
-		if (t.squareIsEmpty(row,col)) {
+		if (board.squareIsEmpty(row,col)) {
 		    /* Valid play, mark it on the board */
                     gameDisplay[row][col].setIcon(
                          new ImageIcon("human.gif"));
-		    gameDisplay[row][col].paint(gameDisplay[row][col].getGraphics());
 
-		    t.storePlay(row,col,HUMAN);
-		    if (t.wins(HUMAN)) endGame("Human wins"); 
+		    board.storePlay(row,col,HUMAN);
+		    if (board.wins(HUMAN)) endGame("Human wins"); 
 		    else {
-			if (t.isDraw()) endGame("Game is a draw"); 
-			else {
-			    pos = computerPlay(COMPUTER,-1,4,0);
- 			    t.storePlay(pos.getRow(),pos.getCol(),COMPUTER);
-			    gameDisplay[pos.getRow()][pos.getCol()].setIcon(
-						new ImageIcon("computer.gif"));
-			    if (t.wins(COMPUTER)) endGame("Computer wins");
-			    else if (t.isDraw()) endGame("Game is a draw");
-			}
+			if (board.isDraw()) endGame("Game is a draw"); 
+			else startSearch();
 		    }
 		}
 		else System.out.println("Invalid play");
@@ -133,6 +371,97 @@ public class Play_nk_TTT extends JFrame {
         }
 
 
+	/* Searches for the computer's play on a background thread, so that
+	   the board is repainted and clicks are handled meanwhile. The title
+	   of the window shows the search's progress. The board must not be
+	   read or changed until the search ends.                            */
+	private void startSearch() {
+	    final long start = System.currentTimeMillis();
+	    setTitle("Computer is thinking");
+	    worker = new SwingWorker<PosPlay,String>() {
+		/* Publishes the progress of either search */
+		private SearchListener listener = new SearchListener() {
+		    public void searchProgress(int level, long nodes, PosPlay best) {
+			long millis = Math.max(1, System.currentTimeMillis() - start);
+			publish("Depth " + level + ", " + (nodes * 1000 / millis)
+				+ " positions/s, best play (" + best.getRow()
+				+ "," + best.getCol() + ")");
+		    }
+		};
+
+		protected PosPlay doInBackground() {
+		    long begin = System.nanoTime();
+		    PosPlay pos = (tablebase == null) ? null : tablebase.bestPlay(board, COMPUTER);
+		    if (pos == null) pos = (search == null) ? dictionaryPlay(listener) : enginePlay();
+		    stats.endMove(System.nanoTime() - begin);
+		    return pos;
+		}
+
+		/* Searches with the engine, publishing its progress */
+		private PosPlay enginePlay() {
+		    search.setSearchListener(listener);
+		    return search.computerPlay(COMPUTER);
+		}
+
+		protected void process(List<String> progress) {
+		    if (worker == this) setTitle(progress.get(progress.size() - 1));
+		}
+
+		protected void done() {
+		    worker = null;
+		    setTitle("");
+		    try {
+			computerMoved(get());
+		    }
+		    catch (InterruptedException | ExecutionException e) {
+			throw new RuntimeException(e);
+		    }
+		}
+	    };
+	    /* Clicks stop the search once worker is set, possibly before
+	       doInBackground() starts it, so the searches do not clear
+	       stop requests themselves                                   */
+	    stop_requested = false;
+	    if (search != null) search.clearStop();
+	    worker.execute();
+	}
+
+
+	/* Searches with the Dictionary, telling the listener of the best
+	   play so far after every play at the root, and adds the counts
+	   of the search to the statistics                                */
+	private PosPlay dictionaryPlay(SearchListener listener) {
+	    nodes = probes = hits = 0;
+	    Arrays.fill(cutoffs, 0);
+	    progress = listener;
+	    PosPlay pos = computerPlay(COMPUTER,-1,4,0);
+	    progress = null;
+	    stats.addSearch(nodes, cutoffs, probes, hits);
+	    if (configurations instanceof Dictionary) {
+		Dictionary dictionary = (Dictionary) configurations;
+		stats.setDictionary(dictionary.numCollisions(), dictionary.averageChainLength());
+	    }
+	    return pos;
+	}
+
+
+	/* Marks the play chosen by the search on the board */
+	private void computerMoved(PosPlay pos) {
+	    System.out.println(stats.moveLine(engine_name));
+	    if (configurations instanceof BoundedDictionary) {
+		BoundedDictionary bounded = (BoundedDictionary) configurations;
+		System.out.println("Dictionary hit rate " + Math.round(100 * bounded.hitRate())
+		    + "%, " + bounded.numEvictions() + " evictions, "
+		    + bounded.residentBytes() + " bytes");
+	    }
+	    board.storePlay(pos.getRow(),pos.getCol(),COMPUTER);
+	    gameDisplay[pos.getRow()][pos.getCol()].setIcon(
+				new ImageIcon("computer.gif"));
+	    if (board.wins(COMPUTER)) endGame("Computer wins");
+	    else if (board.isDraw()) endGame("Game is a draw");
+	}
+
+
 	/* Explore the game tree and choose the best move for the computer */
 	private PosPlay computerPlay(char symbol, int highest_score, 
                                      int lowest_score, int level) {
@@ -146,8 +475,11 @@ public class Play_nk_TTT extends JFrame {
         int value;
 	int lookupVal;
 
+	nodes++;
 	if (level == 0)   /* Create new hash table */
-	    configurations = t.createDictionary();    
+	    configurations = (capacity > 0) ? new BoundedDictionary(capacity, replacement)
+	                   : open_dict ? t.createOpenDictionary()
+	                               : t.createDictionary();
 
         if( symbol == COMPUTER ) {
             opponent = HUMAN; value = -1;
@@ -164,14 +496,28 @@ public class Play_nk_TTT extends JFrame {
                         // Game ending situation or max number of levels reached 
 			reply = new PosPlay(t.evalBoard(),row,column);
 		    else {
-			lookupVal = t.repeatedConfig(configurations);
-			if (lookupVal != -1) 
+			lookupVal = repeatedConfig();
+			probes++;
+			if (lookupVal != -1) {
+			    hits++;
 			    reply = new PosPlay(lookupVal,row,column);
+			}
 			else {
 			    reply = computerPlay(opponent, highest_score, 
                                          lowest_score, level + 1);
-			    if (t.repeatedConfig(configurations) == -1)
-			        t.insertConfig(configurations,reply.getScore());
+			    if (stop_requested) {
+				/* Leave the partly searched play out */
+				t.storePlay(row,column,' ');
+				if (level == 0 && bestRow == -1)
+				    return new PosPlay(1, row, column);
+				return new PosPlay(value, bestRow, bestColumn);
+			    }
+			    if (repeatedConfig() == -1) {
+				if (packed_keys)
+				    t.insertPackedConfig(configurations,reply.getScore());
+				else t.insertConfig(configurations,reply.getScore(),
+				                    max_level - level);
+			    }
 			}
 		    }
 		    t.storePlay(row,column,' ');
@@ -188,9 +534,14 @@ public class Play_nk_TTT extends JFrame {
 			 else if (symbol == HUMAN && value < lowest_score) 
 			     lowest_score = value;
 
-			 if (highest_score >= lowest_score) 
+			 if (highest_score >= lowest_score) {
+			     cutoffs[Math.min(level, cutoffs.length - 1)]++;
 			     return new PosPlay(value, bestRow, bestColumn);
+			 }
 		    }
+		    if (level == 0 && progress != null && bestRow != -1)
+			progress.searchProgress(max_level, nodes,
+			                        new PosPlay(value, bestRow, bestColumn));
 		    
 		}
 	    }
@@ -198,12 +549,21 @@ public class Play_nk_TTT extends JFrame {
         }
 
 
+	/* Returns the score of the current board in configurations, or -1 */
+	private int repeatedConfig() {
+	    if (packed_keys)
+		return t.repeatedPackedConfig(configurations);
+	    return t.repeatedConfig(configurations);
+	}
+
+
 	/* Prompt the user for a key to terminate the game */
 	private void endGame(String mssg) {
 	    System.out.println(mssg);
 	    System.out.println("");
 	    System.out.println("Click on board to terminate game");
 	    game_ended = true;
+	    saveBook();
 	}
 
     }
@@ -0,0 +1,44 @@
+/* This class implements the polynomial hash function the Dictionary
+ * has always used:
+ * p(x) = (int)'c_0' + (int)'c_1'*x + (int)'c_2'*x^2 + ... + (int)'c_n-1'*x^(n-1)
+ * evaluated with Horner's rule, taking modulo the table size at every term.
+ */
+public class PolynomialHash implements HashFunction {
+    private int prime; // the value x of the polynomial.
+
+    /* Class Constructor
+     * Uses the prime 33, as the Dictionary did originally.
+     */
+    public PolynomialHash() {
+        this(33);
+    }
+
+    /* Class Constructor
+     * @param prime the value of the prime number used in the polynomial.
+     */
+    public PolynomialHash(int prime) {
+        this.prime = prime;
+    }
+
+    /* @param key the configuration to hash.
+     * @param tableSize the number of positions on the table.
+     * @return a position in [0, tableSize).
+     */
+    public int hash(String key, int tableSize) {
+        int n = key.length() - 1;
+        int value = ((int) key.charAt(n)) % tableSize;
+        for (int i = n-1; i >= 0; i--) {
+            value = (int) ((value*(long) prime + ((int) key.charAt(i))) % tableSize);
+        }
+        return value;
+    }
+
+    /* Even table sizes leave the low bits of every term to the last characters only,
+     * so the sizes a table grows to are kept odd.
+     * @param minimum the smallest acceptable table size.
+     * @return minimum, rounded up to an odd number.
+     */
+    public int tableSize(int minimum) {
+        return minimum | 1;
+    }
+}
@@ -1,4 +1,7 @@
-/* This class represents a possible play and its associated score */
+/* This class represents a possible play and its associated score.
+ * A search that must not allocate may instead pack a play's score and
+ * square (row * board_size + col, or -1 for none) into one int with
+ * pack(), and read them back with score() and square().               */
 public class PosPlay {
     private int row, col; /* Row and column of the play */
     private int score;    /* play's score               */  
@@ -20,4 +23,20 @@ public class PosPlay {
     public int getScore() {
 	return score;
     }
-}
\ No newline at end of file
+
+    /* Returns the score, between -32768 and 32767, in the high 16 bits
+       and the square plus one, below 65535, in the low 16 bits.       */
+    public static int pack(int score, int square) {
+	return (score << 16) | ((square + 1) & 0xFFFF);
+    }
+
+    /* Returns the score of a packed play */
+    public static int score(int packed) {
+	return packed >> 16;
+    }
+
+    /* Returns the square of a packed play, or -1 if there is none */
+    public static int square(int packed) {
+	return (packed & 0xFFFF) - 1;
+    }
+}
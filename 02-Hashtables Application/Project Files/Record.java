@@ -5,6 +5,7 @@
 public class Record {
     private String config; 
     private int score;
+    private int depth;     // the number of levels searched below the configuration.
     
     /* Class Constructor
      * @param config a String that represents the configuration of the game board.
@@ -16,6 +17,17 @@ public class Record {
 	this.score = score;
     }
 
+    /* Class Constructor
+     * @param config a String that represents the configuration of the game board.
+     * @param score an integer that specifies the outcome of the game.
+     * @param depth the number of levels of the game tree searched below the configuration,
+     *    which bounded dictionaries use to decide what to keep.
+     */
+    public Record(String config, int score, int depth) {
+	this(config, score);
+	this.depth = depth;
+    }
+
     /* Accessor Method
      * @return the configuration of the gameboard scored in this record.
      */
@@ -23,6 +35,13 @@ public class Record {
 	return config;
     }
 
+    /* Accessor Method
+     * @return the number of levels searched below the configuration, 0 if not given.
+     */
+    public int getDepth() {
+	return depth;
+    }
+
     /* Accessor Method
      * @return the score of the gameboard stored in this record.
      */
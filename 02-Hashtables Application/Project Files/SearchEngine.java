@@ -0,0 +1,31 @@
+
+/* A game-tree search that chooses the play for a player on its board.
+ * Scores follow nk_TicTacToe.evalBoard(): 3 computer wins, 2 draw,
+ * 1 undecided, 0 human wins.
+ */
+public interface SearchEngine
+{
+    public PosPlay computerPlay (char symbol);
+
+    public long getNodes ();
+
+    public void setMoveOrdering (boolean ordering);
+
+    public void setKeepTable (boolean keepTable);
+
+    public void setSymmetry (boolean symmetry);
+
+    public void setGradedEvaluation (boolean graded);
+
+    public void setThreats (boolean threats);
+
+    public TranspositionTable getTable ();
+
+    public void setSearchListener (SearchListener listener);
+
+    public void stop ();
+
+    public void clearStop ();
+
+    public void setStats (SearchStats stats);
+}
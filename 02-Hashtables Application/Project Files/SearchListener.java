@@ -0,0 +1,7 @@
+/* An object told of the progress of a SearchEngine while it searches.
+ * It is called on the searching thread, so it should return quickly.
+ */
+public interface SearchListener
+{
+    public void searchProgress (int level, long nodes, PosPlay best);
+}
@@ -0,0 +1,164 @@
+import java.lang.management.ManagementFactory;
+import javax.management.ObjectName;
+
+/* This class collects what the searches do: positions searched, alpha/beta
+ * cuts by level, table lookups and hits, Dictionary collisions and the time
+ * taken per move. Searches add their counts once they end, so collecting
+ * costs nothing per position, and several threads may add at once. The
+ * totals can be watched through JMX once register() is called, and
+ * moveLine() describes the last move in one line of name=value fields.
+ */
+public class SearchStats implements SearchStatsMBean {
+    public static final int LEVELS = 64; // the levels cuts are counted for; deeper cuts count at the last.
+
+    private long moves;
+    private long nodes;
+    private long nanos;           // the time taken by all moves.
+    private long lastNanos;       // the time taken by the last move.
+    private long[] cutoffs = new long[LEVELS];
+    private long probes, hits;    // lookups in the table or Dictionary, and the ones that found the position.
+    private long collisions;      // the Dictionary's collisions at the end of the last move.
+    private double averageChain;  // the Dictionary's average chain length at the end of the last move.
+
+    /* the totals when the last move began, to report that move alone */
+    private long moveNodes, moveProbes, moveHits;
+    private long[] moveCutoffs = new long[LEVELS];
+
+    /* This method publishes the statistics through the platform MBean server.
+     * @param name the JMX object name, such as "nk_TicTacToe:type=SearchStats".
+     * @throws Exception if the name is malformed or already registered.
+     */
+    public void register(String name) throws Exception {
+        ManagementFactory.getPlatformMBeanServer().registerMBean(this, new ObjectName(name));
+    }
+
+    /* Mutator Method
+     * This method adds the counts of one search.
+     * @param nodes the positions searched.
+     * @param cutoffs cutoffs[level] is the number of alpha/beta cuts at that level.
+     * @param probes the lookups of positions in the table or Dictionary.
+     * @param hits the lookups that found a usable score.
+     */
+    public synchronized void addSearch(long nodes, long[] cutoffs, long probes, long hits) {
+        this.nodes += nodes;
+        for (int level = 0; level < cutoffs.length; level++)
+            this.cutoffs[Math.min(level, LEVELS - 1)] += cutoffs[level];
+        this.probes += probes;
+        this.hits += hits;
+    }
+
+    /* Mutator Method
+     * @param collisions the number of inserts that landed on an occupied bucket.
+     * @param averageChain the average length of the non-empty chains.
+     */
+    public synchronized void setDictionary(long collisions, double averageChain) {
+        this.collisions = collisions;
+        this.averageChain = averageChain;
+    }
+
+    /* Mutator Method
+     * This method ends a move; the counts added since the previous move are its own.
+     * @param nanos the time the move took.
+     */
+    public synchronized void endMove(long nanos) {
+        moves++;
+        this.nanos += nanos;
+        lastNanos = nanos;
+    }
+
+    /* This method describes the last move and starts counting the next one.
+     * @param engine the name of the search engine.
+     * @return a line of name=value fields separated by spaces.
+     */
+    public synchronized String moveLine(String engine) {
+        long n = nodes - moveNodes;
+        long p = probes - moveProbes;
+        StringBuilder cuts = new StringBuilder();
+        for (int level = 0; level < LEVELS; level++) {
+            long c = cutoffs[level] - moveCutoffs[level];
+            if (c != 0) cuts.append(cuts.length() == 0 ? "" : ",").append(level).append(':').append(c);
+            moveCutoffs[level] = cutoffs[level];
+        }
+        String line = "move=" + moves + " engine=" + engine + " millis=" + lastNanos / 1000000
+            + " nodes=" + n + " nps=" + perSecond(n, lastNanos)
+            + " cutoffs=" + (cuts.length() == 0 ? "-" : cuts.toString())
+            + " probes=" + p + " hits=" + (hits - moveHits)
+            + " hit_rate=" + String.format("%.3f", p == 0 ? 0.0 : (double) (hits - moveHits) / p)
+            + " collisions=" + collisions
+            + " avg_chain=" + String.format("%.2f", averageChain);
+        moveNodes = nodes;
+        moveProbes = probes;
+        moveHits = hits;
+        return line;
+    }
+
+    /* Accessor Methods, described in SearchStatsMBean */
+
+    public synchronized long getMoves() {
+        return moves;
+    }
+
+    public synchronized long getNodes() {
+        return nodes;
+    }
+
+    public synchronized long getNodesPerSecond() {
+        return perSecond(nodes, nanos);
+    }
+
+    public synchronized long getLastMoveMillis() {
+        return lastNanos / 1000000;
+    }
+
+    public synchronized long getAverageMoveMillis() {
+        return (moves == 0) ? 0 : nanos / moves / 1000000;
+    }
+
+    public synchronized long getCutoffs() {
+        long total = 0;
+        for (int level = 0; level < LEVELS; level++) total += cutoffs[level];
+        return total;
+    }
+
+    public synchronized long[] getCutoffsByDepth() {
+        return cutoffs.clone();
+    }
+
+    public synchronized long getTableProbes() {
+        return probes;
+    }
+
+    public synchronized long getTableHits() {
+        return hits;
+    }
+
+    public synchronized double getTableHitRate() {
+        return (probes == 0) ? 0 : (double) hits / probes;
+    }
+
+    public synchronized long getDictionaryCollisions() {
+        return collisions;
+    }
+
+    public synchronized double getAverageChainLength() {
+        return averageChain;
+    }
+
+    /* This method sets every count back to 0. */
+    public synchronized void reset() {
+        moves = nodes = nanos = lastNanos = probes = hits = collisions = 0;
+        moveNodes = moveProbes = moveHits = 0;
+        averageChain = 0;
+        cutoffs = new long[LEVELS];
+        moveCutoffs = new long[LEVELS];
+    }
+
+    /* Helper Method
+     * @param count a number of positions.
+     * @param nanos the time they took.
+     * @return the positions per second.
+     */
+    private static long perSecond(long count, long nanos) {
+        return (nanos == 0) ? 0 : (long) (count * 1e9 / nanos);
+    }
+}
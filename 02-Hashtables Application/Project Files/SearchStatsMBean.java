@@ -0,0 +1,31 @@
+/* The attributes of SearchStats published through JMX. Counts are totals
+ * since the game started or reset() was last called.
+ */
+public interface SearchStatsMBean
+{
+    public long getMoves ();
+
+    public long getNodes ();
+
+    public long getNodesPerSecond ();
+
+    public long getLastMoveMillis ();
+
+    public long getAverageMoveMillis ();
+
+    public long getCutoffs ();
+
+    public long[] getCutoffsByDepth ();
+
+    public long getTableProbes ();
+
+    public long getTableHits ();
+
+    public double getTableHitRate ();
+
+    public long getDictionaryCollisions ();
+
+    public double getAverageChainLength ();
+
+    public void reset ();
+}
@@ -0,0 +1,109 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.ArrayDeque;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/* This program solves n-k tic-tac-toe positions without a display. It reads
+ * one position per line from standard input, solves the positions in
+ * parallel and writes one line per position, in input order:
+ *     line  row  col  score  nodes  milliseconds
+ * separated by tabs. Lines that are not valid positions produce
+ *     line  error  message
+ * A position has board-size * board-size characters in row-major order:
+ * 'X', 'O', and ' ' or '.' for an empty square. Shorter lines are padded
+ * with empty squares, since trailing blanks are easily lost.
+ *
+ * To run the program type:
+ *     java Solve_nk_TTT board-size symbols-inline-to-win depth [options]
+ * with the options
+ *     -threads=n        positions solved at once (default: the number of processors)
+ *     -time=ms          deepen each search until ms milliseconds have passed
+ *     -symmetry=on      share table entries between symmetric positions
+ *     -board=bitboard   search on bitboards instead of a char matrix
+ *     -eval=graded      grade positions cut off by the depth limit by their open lines
+ *     -threats=on       take immediate wins and forced blocks without searching
+ *     -cache=n          remember the solutions of up to n positions, shared by
+ *                       all threads, and answer repeated positions from them
+ */
+public class Solve_nk_TTT {
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if (args.length < 3) {
+            System.out.println("Usage: java Solve_nk_TTT board-size symbols-inline-to-win depth "
+                + "[-threads=n] [-time=ms] [-symmetry=on|off] [-board=array|bitboard]"
+                + " [-eval=plain|graded] [-threats=on|off] [-cache=n] < positions");
+            System.exit(0);
+        }
+        final int size = Integer.parseInt(args[0]);
+        final nk_Solver solver = new nk_Solver(size, Integer.parseInt(args[1]), Integer.parseInt(args[2]));
+        solver.setTimeBudget(Long.parseLong(option(args, "time", "0")));
+        solver.setSymmetry(option(args, "symmetry", "off").equals("on"));
+        solver.setBitboard(option(args, "board", "array").equals("bitboard"));
+        solver.setGradedEvaluation(option(args, "eval", "plain").equals("graded"));
+        solver.setThreats(option(args, "threats", "off").equals("on"));
+        solver.setCache(Integer.parseInt(option(args, "cache", "0")));
+        int threads = Integer.parseInt(option(args, "threads",
+            Integer.toString(Runtime.getRuntime().availableProcessors())));
+
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        ArrayDeque<Future<String>> pending = new ArrayDeque<Future<String>>();
+        BufferedReader in = new BufferedReader(new InputStreamReader(System.in));
+        String line;
+        int number = 0;
+        while ((line = in.readLine()) != null) {
+            final int lineNumber = ++number;
+            final String position = pad(line, size * size);
+            pending.add(pool.submit(new Callable<String>() {
+                public String call() {
+                    try {
+                        return lineNumber + "\t" + solver.solve(position);
+                    }
+                    catch (IllegalArgumentException e) {
+                        return lineNumber + "\terror\t" + e.getMessage();
+                    }
+                }
+            }));
+            /* write finished results in order, and keep the backlog bounded */
+            while (!pending.isEmpty() && (pending.peek().isDone() || pending.size() > 4 * threads))
+                System.out.println(result(pending.poll()));
+        }
+        while (!pending.isEmpty()) System.out.println(result(pending.poll()));
+        pool.shutdown();
+    }
+
+    /* @param future a submitted position.
+     * @return its output line, waiting for it if needed.
+     */
+    private static String result(Future<String> future) throws InterruptedException {
+        try {
+            return future.get();
+        }
+        catch (ExecutionException e) {
+            throw new RuntimeException(e.getCause());
+        }
+    }
+
+    /* @param line a line of input.
+     * @param squares the number of squares of the board.
+     * @return the line, padded with empty squares up to the number of squares.
+     */
+    private static String pad(String line, int squares) {
+        StringBuilder position = new StringBuilder(line);
+        while (position.length() < squares) position.append(' ');
+        return position.toString();
+    }
+
+    /* Returns the value of option -name=value, or the given default value
+       if the option was not supplied.                                    */
+    private static String option(String[] args, String name, String default_value) {
+        for (int i = 3; i < args.length; i++)
+            if (args[i].startsWith("-" + name + "="))
+                return args[i].substring(name.length() + 2);
+        return default_value;
+    }
+}
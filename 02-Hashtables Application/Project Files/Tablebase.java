@@ -0,0 +1,160 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/* This class reads a tablebase written by TablebaseGenerator: the perfect
+ * score of every position reachable in a game of n-k tic-tac-toe, and the
+ * number of plays left until the game ends when both players play
+ * perfectly. A position is found at its index, the board read as a base-3
+ * number (see nk_TicTacToe.getIndex()), so a probe is a single read of the
+ * memory-mapped file.
+ *
+ * Each entry is one byte: the result in the top 2 bits (X_WINS, DRAW or
+ * O_WINS) and the distance to the end of the game in the low 6 bits. The
+ * winner takes the quickest win and the loser holds out longest. Positions
+ * that cannot be reached in a game hold NONE.
+ */
+public class Tablebase {
+    public static final int NONE = 0;    // the entry of a position not in the tablebase.
+    public static final int X_WINS = 1;  // the result of a position the human player ('X') wins.
+    public static final int DRAW = 2;    // the result of a position neither player can win.
+    public static final int O_WINS = 3;  // the result of a position the computer ('O') wins.
+    public static final int MAX_SQUARES = 16;  // the largest board a tablebase is made for, 4x4.
+    public static final int MAX_INDEXED = 39;  // the most squares whose index fits in a long.
+
+    static final long MAGIC = 0x6E6B545454424153L; // "nkTTTBAS", the first long of a tablebase file.
+    static final int HEADER = 32;        // bytes: magic, board size, inline and number of entries.
+
+    private MappedByteBuffer entries;
+    private int board_size;
+    private long[] powers;               // powers[i] is 3 to the power i.
+
+    private Tablebase(MappedByteBuffer entries, int board_size) {
+        this.entries = entries;
+        this.board_size = board_size;
+        powers = powers(board_size * board_size);
+    }
+
+    /* This method maps a tablebase file.
+     * @param file the file written by TablebaseGenerator.
+     * @param board_size the dimension of the board of the game.
+     * @param inline the number of symbols inline needed to win.
+     * @return the tablebase, or null if the file holds a tablebase for another game.
+     * @throws IOException if the file cannot be read.
+     */
+    public static Tablebase load(File file, int board_size, int inline) throws IOException {
+        FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        try {
+            long bytes = channel.size();
+            if (bytes < HEADER || board_size * board_size > MAX_SQUARES) return null;
+            MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER);
+            long count = powers(board_size * board_size + 1)[board_size * board_size];
+            if (header.getLong(0) != MAGIC || header.getLong(8) != board_size
+                || header.getLong(16) != inline || header.getLong(24) != count
+                || bytes != HEADER + count) return null;
+            return new Tablebase(channel.map(FileChannel.MapMode.READ_ONLY, HEADER, count), board_size);
+        }
+        finally {
+            channel.close();  // the mapping stays valid
+        }
+    }
+
+    /* Accessor Method
+     * @param index the index of a position, from nk_TicTacToeADT.getIndex().
+     * @return the entry of the position, NONE if it is not in the tablebase.
+     */
+    public int probe(long index) {
+        return entries.get((int) index) & 0xFF;
+    }
+
+    /* This method finds the perfect play for the player to move, as the play
+     * leading to the best entry.
+     * @param board a board of the tablebase's size.
+     * @param symbol the player to move, 'X' or 'O'.
+     * @return the play and its score on the scale of nk_TicTacToe.evalBoard(),
+     *    or null if the board is not in the tablebase or the game is over.
+     */
+    public PosPlay bestPlay(nk_TicTacToeADT board, char symbol) {
+        long index = board.getIndex();
+        int entry = probe(index);
+        if (entry == NONE || distance(entry) == 0) return null;
+        int code = PackedKey.code(symbol);
+        int best = -1;
+        int bestEntry = NONE;
+        for (int square = 0; square < board_size * board_size; square++) {
+            if (!board.squareIsEmpty(square / board_size, square % board_size)) continue;
+            int child = probe(index + code * powers[square]);
+            if (child != NONE && (best == -1 || better(child, bestEntry, symbol))) {
+                best = square;
+                bestEntry = child;
+            }
+        }
+        if (best == -1) return null;
+        return new PosPlay(score(bestEntry), best / board_size, best % board_size);
+    }
+
+    /* @param entry an entry other than NONE.
+     * @return X_WINS, DRAW or O_WINS.
+     */
+    public static int result(int entry) {
+        return entry >>> 6;
+    }
+
+    /* @param entry an entry other than NONE.
+     * @return the number of plays left until the game ends.
+     */
+    public static int distance(int entry) {
+        return entry & 0x3F;
+    }
+
+    /* @param entry an entry other than NONE.
+     * @return the score of the position on the scale of nk_TicTacToe.evalBoard():
+     *    3 computer wins, 2 draw, 0 human wins.
+     */
+    public static int score(int entry) {
+        switch (result(entry)) {
+            case O_WINS: return 3;
+            case DRAW:   return 2;
+            default:     return 0;
+        }
+    }
+
+    /* @param result X_WINS, DRAW or O_WINS.
+     * @param distance the number of plays left until the game ends, at most 63.
+     * @return the entry.
+     */
+    static int entry(int result, int distance) {
+        return (result << 6) | distance;
+    }
+
+    /* This method compares two positions reached by a play of the given player.
+     * @param a an entry other than NONE.
+     * @param b an entry other than NONE.
+     * @param symbol the player choosing between them.
+     * @return true if the player prefers a to b: a better result, or the same
+     *    result reached sooner if it is a win and later if it is a loss.
+     */
+    static boolean better(int a, int b, char symbol) {
+        int scoreA = score(a);
+        int scoreB = score(b);
+        if (scoreA != scoreB) return (symbol == 'O') ? scoreA > scoreB : scoreA < scoreB;
+        boolean losing = (symbol == 'O') ? scoreA == 0 : scoreA == 3;
+        return losing ? distance(a) > distance(b) : distance(a) < distance(b);
+    }
+
+    /* @param squares the number of squares of a board.
+     * @return powers[i] = 3 to the power i for the squares up to MAX_INDEXED,
+     *    and 0 for the squares after it, which no index can hold.
+     */
+    static long[] powers(int squares) {
+        long[] powers = new long[squares];
+        long power = 1;
+        for (int i = 0; i < squares && i <= MAX_INDEXED; i++) {
+            powers[i] = power;
+            power *= 3;
+        }
+        return powers;
+    }
+}
@@ -0,0 +1,160 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/* This program writes the tablebase of a small n-k tic-tac-toe game, read
+ * by the Tablebase class. It works in two passes over the positions:
+ *
+ *   1. Every position reachable from the empty board, with 'X' playing
+ *      first and no play after a win, is enumerated by a depth-first walk
+ *      of an nk_TicTacToe board and listed by its number of symbols, its
+ *      layer. Finished games are scored as they are found.
+ *   2. The layers are solved backwards, from full boards to the empty one:
+ *      every position of a layer takes the best entry among the positions
+ *      its plays lead to, which are all in the next layer and solved.
+ *
+ * The tablebase holds 3^(board-size^2) one-byte entries, 43MB for 4x4.
+ *
+ * To run it type: java TablebaseGenerator board-size symbols-inline-to-win file
+ */
+public class TablebaseGenerator {
+    private static final int REACHED = 0x3F;  // marks a position listed but not solved yet.
+
+    private int board_size;
+    private int squares;
+    private long[] powers;       // powers[i] is 3 to the power i.
+    private byte[] entries;      // entries[index] is the entry of the position with that index.
+    private int[][] layers;      // layers[l] lists the unsolved positions with l symbols.
+    private int[] layerSizes;    // layerSizes[l] is the number of positions listed in layers[l].
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 3) {
+            System.out.println("Usage: java TablebaseGenerator board-size symbols-inline-to-win file");
+            System.exit(0);
+        }
+        int size = Integer.parseInt(args[0]);
+        int inline = Integer.parseInt(args[1]);
+        long start = System.currentTimeMillis();
+        TablebaseGenerator generator = new TablebaseGenerator(size);
+        int reached = generator.enumerate(new nk_TicTacToe(size, inline, 0));
+        generator.solve();
+        generator.write(new File(args[2]), inline);
+        int root = generator.entries[0] & 0xFF;
+        System.out.println(reached + " positions in " + (System.currentTimeMillis() - start)
+            + " ms; the empty board scores " + Tablebase.score(root) + " in "
+            + Tablebase.distance(root) + " plays");
+    }
+
+    /* Class Constructor
+     * @param board_size the dimension of the game board.
+     * @throws IllegalArgumentException if the board has more than Tablebase.MAX_SQUARES squares.
+     */
+    public TablebaseGenerator(int board_size) {
+        this.board_size = board_size;
+        squares = board_size * board_size;
+        if (squares > Tablebase.MAX_SQUARES)
+            throw new IllegalArgumentException("Tablebases are made for at most " + Tablebase.MAX_SQUARES + " squares");
+        powers = Tablebase.powers(squares + 1);
+        entries = new byte[(int) powers[squares]];
+        layers = new int[squares + 1][16];
+        layerSizes = new int[squares + 1];
+    }
+
+    /* This method lists every position reachable from the given empty board.
+     * @param t an empty board of the generator's size.
+     * @return the number of positions reached.
+     */
+    public int enumerate(nk_TicTacToe t) {
+        add(0, 0);
+        return 1 + visit(t, 0, 'X');
+    }
+
+    /* This method solves the listed positions, one layer after the other
+     * from the fullest, so that every play leads to a solved position.
+     */
+    public void solve() {
+        for (int layer = squares - 1; layer >= 0; layer--) {
+            char symbol = (layer % 2 == 0) ? 'X' : 'O';
+            int code = PackedKey.code(symbol);
+            for (int i = 0; i < layerSizes[layer]; i++) {
+                int index = layers[layer][i];
+                int best = Tablebase.NONE;
+                int rest = index;
+                for (int square = 0; square < squares; square++, rest /= 3) {
+                    if (rest % 3 != 0) continue;
+                    int child = entries[index + code * (int) powers[square]] & 0xFF;
+                    if (best == Tablebase.NONE || Tablebase.better(child, best, symbol)) best = child;
+                }
+                entries[index] = (byte) Tablebase.entry(Tablebase.result(best), Tablebase.distance(best) + 1);
+            }
+            layers[layer] = null;  // no longer needed
+        }
+    }
+
+    /* This method writes the tablebase through a memory mapping.
+     * @param file the file to write, replaced if it exists.
+     * @param inline the number of symbols inline needed to win, recorded in the header.
+     * @throws IOException if the file cannot be written.
+     */
+    public void write(File file, int inline) throws IOException {
+        FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+            StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        try {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0,
+                Tablebase.HEADER + entries.length);
+            buffer.putLong(Tablebase.MAGIC).putLong(board_size).putLong(inline).putLong(entries.length);
+            buffer.put(entries);
+            buffer.force();
+        }
+        finally {
+            channel.close();
+        }
+    }
+
+    /* Helper Method
+     * This method lists the positions reached by every play from the board
+     * that were not reached before, and scores those that end the game.
+     * @param t the board, restored before returning.
+     * @param layer the number of symbols on the board.
+     * @param symbol the player to move.
+     * @return the number of new positions reached.
+     */
+    private int visit(nk_TicTacToe t, int layer, char symbol) {
+        int count = 0;
+        char opponent = (symbol == 'X') ? 'O' : 'X';
+        for (int square = 0; square < squares; square++) {
+            int row = square / board_size;
+            int col = square % board_size;
+            if (!t.squareIsEmpty(row, col)) continue;
+            t.storePlay(row, col, symbol);
+            int index = (int) t.getIndex();
+            if (entries[index] == Tablebase.NONE) {
+                count++;
+                if (t.wins(symbol))
+                    entries[index] = (byte) Tablebase.entry(symbol == 'X' ? Tablebase.X_WINS : Tablebase.O_WINS, 0);
+                else if (t.isDraw())
+                    entries[index] = (byte) Tablebase.entry(Tablebase.DRAW, 0);
+                else {
+                    add(layer + 1, index);
+                    count += visit(t, layer + 1, opponent);
+                }
+            }
+            t.storePlay(row, col, ' ');
+        }
+        return count;
+    }
+
+    /* Helper Method
+     * @param layer the number of symbols of the position.
+     * @param index the index of a position whose game is not over.
+     */
+    private void add(int layer, int index) {
+        if (layerSizes[layer] == layers[layer].length)
+            layers[layer] = Arrays.copyOf(layers[layer], 2 * layers[layer].length);
+        layers[layer][layerSizes[layer]++] = index;
+        entries[index] = (byte) REACHED;
+    }
+}
@@ -0,0 +1,110 @@
+public class TestBoundedDictionary {
+
+  /*
+  ** Test program for the BoundedDictionary class. A dictionary with a
+  ** capacity of BoundedDictionary.WAYS has a single bucket, so every
+  ** configuration competes for the same slots and the choices of each
+  ** replacement policy can be checked.
+  ** To run it type: java TestBoundedDictionary
+  */
+
+  public static void main(String[] args) {
+    BoundedDictionary dict;
+
+    // Test 1: depth-preferred evicts the shallowest Record, and drops a
+    // new Record that is shallower than all of the bucket.
+    dict = full(BoundedDictionary.DEPTH_PREFERRED, new int[] {5, 3, 7, 2});
+    dict.insert(new Record("e", 4, 4));
+    dict.insert(new Record("f", 4, 1));
+    if (holds(dict, "abce", "df") && dict.numEvictions() == 1 && dict.numDrops() == 1)
+      System.out.println("   Test 1 succeeded");
+    else System.out.println("***Test 1 failed");
+
+    // Test 2: always-replace evicts the oldest Records in turn.
+    dict = full(BoundedDictionary.ALWAYS_REPLACE, new int[] {5, 3, 7, 2});
+    dict.insert(new Record("e", 4, 9));
+    dict.insert(new Record("f", 4, 0));
+    if (holds(dict, "cdef", "ab") && dict.numEvictions() == 2 && dict.numDrops() == 0)
+      System.out.println("   Test 2 succeeded");
+    else System.out.println("***Test 2 failed");
+
+    // Test 3: two-tier moves the Record evicted from the depth-preferred
+    // half into the always-replace half, and stores a shallow Record
+    // in the always-replace half only.
+    dict = full(BoundedDictionary.TWO_TIER, new int[] {5, 3, 1, 1});
+    dict.insert(new Record("e", 4, 4));
+    boolean pass = holds(dict, "abde", "c");
+    dict.insert(new Record("f", 4, 0));
+    if (pass && holds(dict, "abef", "cd") && dict.numEvictions() == 2)
+      System.out.println("   Test 3 succeeded");
+    else System.out.println("***Test 3 failed");
+
+    // Test 4: clock spares the Record read since the hand last passed it.
+    dict = full(BoundedDictionary.CLOCK, new int[] {0, 0, 0, 0});
+    dict.insert(new Record("e", 4, 0));  // clears every mark, evicts a
+    dict.get("b");
+    dict.insert(new Record("f", 4, 0));
+    if (holds(dict, "bdef", "ac") && dict.numEvictions() == 2)
+      System.out.println("   Test 4 succeeded");
+    else System.out.println("***Test 4 failed");
+
+    // Test 5: however many Records are inserted, the dictionary keeps at
+    // most its capacity, and a duplicate is still refused.
+    dict = new BoundedDictionary(1000, BoundedDictionary.DEPTH_PREFERRED);
+    long empty = dict.residentBytes();
+    for (int i = 0; i < 10000; ++i) dict.insert(new Record(Integer.toString(i), i, i % 7));
+    pass = dict.numElements() <= dict.capacity()
+      && dict.numEvictions() + dict.numDrops() + dict.numElements() == 10000
+      && dict.residentBytes() > empty;
+    int kept = 0;
+    while (dict.get(Integer.toString(kept)) == -1) ++kept;
+    try {
+      dict.insert(new Record(Integer.toString(kept), 0, 9));
+      pass = false;
+    } catch (DictionaryException e) {
+      // a duplicate, as expected
+    }
+    if (pass) System.out.println("   Test 5 succeeded");
+    else System.out.println("***Test 5 failed");
+
+    // Test 6: the hit rate counts the calls to get() that found their
+    // configuration, and removing a Record releases its bytes.
+    dict = full(BoundedDictionary.DEPTH_PREFERRED, new int[] {1, 1, 1, 1});
+    long bytes = dict.residentBytes();
+    dict.get("a");
+    dict.get("b");
+    dict.get("c");
+    dict.get("x");
+    dict.remove("a");
+    if (dict.hitRate() == 0.75 && dict.residentBytes() < bytes && dict.numElements() == 3)
+      System.out.println("   Test 6 succeeded");
+    else System.out.println("***Test 6 failed");
+
+    // Test 7: an unknown policy is refused.
+    try {
+      new BoundedDictionary(1000, 7);
+      System.out.println("***Test 7 failed");
+    } catch (DictionaryException e) {
+      System.out.println("   Test 7 succeeded");
+    }
+  }
+
+  /* Returns a dictionary of a single bucket holding the configurations
+   * "a", "b", "c" and "d", inserted in this order with the given depths. */
+  private static BoundedDictionary full(int policy, int[] depths) {
+    BoundedDictionary dict = new BoundedDictionary(BoundedDictionary.WAYS, policy);
+    for (int i = 0; i < depths.length; ++i)
+      dict.insert(new Record(String.valueOf((char) ('a' + i)), i, depths[i]));
+    return dict;
+  }
+
+  /* Returns true if the dictionary holds every configuration named by a
+   * character of kept, and none of those named in evicted. */
+  private static boolean holds(BoundedDictionary dict, String kept, String evicted) {
+    for (int i = 0; i < kept.length(); ++i)
+      if (dict.get(kept.substring(i, i + 1)) == -1) return false;
+    for (int i = 0; i < evicted.length(); ++i)
+      if (dict.get(evicted.substring(i, i + 1)) != -1) return false;
+    return true;
+  }
+}
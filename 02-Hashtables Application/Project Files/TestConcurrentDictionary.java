@@ -0,0 +1,145 @@
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class TestConcurrentDictionary {
+
+  /*
+  ** Test program for the ConcurrentDictionary class, with several
+  ** threads inserting, reading and removing at once.
+  ** To run it type: java TestConcurrentDictionary
+  */
+
+  private static final int THREADS = 8;
+  private static final int PER_THREAD = 20000;
+
+  public static void main(String[] args) throws InterruptedException {
+    final ConcurrentDictionary dict = new ConcurrentDictionary(1000);
+
+    // Test 1: every thread inserts its own configurations; none is lost
+    // and the table grows under the inserts of the other threads.
+    boolean pass = run(new Work() {
+      public void run(int thread) {
+        for (int i = 0; i < PER_THREAD; ++i) dict.insert(new Record(key(thread, i), i));
+      }
+    });
+    pass = pass && dict.numElements() == THREADS * PER_THREAD;
+    for (int thread = 0; thread < THREADS && pass; ++thread)
+      for (int i = 0; i < PER_THREAD && pass; ++i) pass = (dict.get(key(thread, i)) == i);
+    if (pass) System.out.println("   Test 1 succeeded");
+    else System.out.println("***Test 1 failed");
+
+    // Test 2: every thread inserts the same configurations; each is
+    // inserted exactly once and the other inserts throw.
+    final ConcurrentDictionary shared = new ConcurrentDictionary(1000);
+    final AtomicInteger inserted = new AtomicInteger();
+    pass = run(new Work() {
+      public void run(int thread) {
+        for (int i = 0; i < PER_THREAD; ++i) {
+          try {
+            shared.insert(new Record(key(0, i), thread));
+            inserted.incrementAndGet();
+          } catch (DictionaryException e) {
+            // inserted by another thread
+          }
+        }
+      }
+    });
+    if (pass && inserted.get() == PER_THREAD && shared.numElements() == PER_THREAD)
+      System.out.println("   Test 2 succeeded");
+    else System.out.println("***Test 2 failed");
+
+    // Test 3: threads remove their own half of the configurations while
+    // others read; the other half is untouched.
+    pass = run(new Work() {
+      public void run(int thread) {
+        for (int i = 0; i < PER_THREAD; ++i) {
+          if (thread % 2 == 0) dict.remove(key(thread, i));
+          else if (dict.get(key(thread, i)) != i) throw new RuntimeException("lost " + key(thread, i));
+        }
+      }
+    });
+    pass = pass && dict.numElements() == THREADS / 2 * PER_THREAD;
+    for (int thread = 0; thread < THREADS && pass; ++thread)
+      for (int i = 0; i < PER_THREAD && pass; ++i)
+        pass = (dict.get(key(thread, i)) == ((thread % 2 == 0) ? -1 : i));
+    if (pass) System.out.println("   Test 3 succeeded");
+    else System.out.println("***Test 3 failed");
+
+    // Test 4: in lossy mode inserts never throw and the table never grows.
+    final ConcurrentDictionary lossy =
+      new ConcurrentDictionary(4096, ConcurrentDictionary.DEFAULT_STRIPES, true);
+    pass = run(new Work() {
+      public void run(int thread) {
+        for (int i = 0; i < PER_THREAD; ++i) lossy.insert(new Record(key(i % 2, i), i));
+      }
+    });
+    if (pass && lossy.numElements() > 0 && lossy.numElements() <= 4096)
+      System.out.println("   Test 4 succeeded");
+    else System.out.println("***Test 4 failed");
+
+    // Test 5: solver threads sharing their solutions through a lossy
+    // ConcurrentDictionary find the same plays as without it.
+    final String[] positions = { "X        ", " X       ", "X   O    ", "XX  O    " };
+    final nk_Solver plain = new nk_Solver(3, 3, 9);
+    final nk_Solver cached = new nk_Solver(3, 3, 9);
+    cached.setCache(1000);
+    final AtomicInteger mismatches = new AtomicInteger();
+    pass = run(new Work() {
+      public void run(int thread) {
+        String position = positions[thread % positions.length];
+        if (!same(plain.solve(position).getPlay(), cached.solve(position).getPlay()))
+          mismatches.incrementAndGet();
+      }
+    });
+    if (pass && mismatches.get() == 0 && cached.solve(positions[0]).getNodes() == 0)
+      System.out.println("   Test 5 succeeded");
+    else System.out.println("***Test 5 failed");
+
+    // Test 6: the cache may be set before the other options, and changing
+    // an option drops the solutions found with the old one.
+    nk_Solver early = new nk_Solver(3, 3, 9);
+    early.setCache(1000);
+    early.setSymmetry(true);
+    early.solve(positions[2]);
+    boolean kept = early.solve(positions[2]).getNodes() == 0;
+    early.setThreats(true);
+    if (kept && early.solve(positions[2]).getNodes() > 0 && early.solve(positions[2]).getNodes() == 0)
+      System.out.println("   Test 6 succeeded");
+    else System.out.println("***Test 6 failed");
+  }
+
+  /* The work of one of THREADS threads. */
+  private interface Work {
+    void run(int thread);
+  }
+
+  /* Runs the work on THREADS threads at once and waits for them.
+   * Returns false if a thread threw, which fails the test. */
+  private static boolean run(final Work work) throws InterruptedException {
+    Thread[] threads = new Thread[THREADS];
+    final AtomicInteger failures = new AtomicInteger();
+    for (int t = 0; t < THREADS; ++t) {
+      final int thread = t;
+      threads[t] = new Thread() {
+        public void run() {
+          try {
+            work.run(thread);
+          } catch (RuntimeException e) {
+            failures.incrementAndGet();
+          }
+        }
+      };
+      threads[t].start();
+    }
+    for (int t = 0; t < THREADS; ++t) threads[t].join();
+    return failures.get() == 0;
+  }
+
+  private static boolean same(PosPlay a, PosPlay b) {
+    return a.getRow() == b.getRow() && a.getCol() == b.getCol() && a.getScore() == b.getScore();
+  }
+
+  /* Returns a distinct configuration for every thread and i. */
+  private static String key(int thread, int i) {
+    return thread + ":" + i;
+  }
+}
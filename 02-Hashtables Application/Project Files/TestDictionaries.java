@@ -0,0 +1,148 @@
+import java.io.File;
+import java.io.IOException;
+
+public class TestDictionaries {
+
+  /*
+  ** Test program for every implementation of the Dictionary ADT.
+  ** It runs the tests of TestDict on each of them, with 4x4 board
+  ** configurations as keys since MappedDictionary only stores boards.
+  ** To run it type: java TestDictionaries
+  */
+
+  private static final int SQUARES = 16;
+
+  public static void main(String[] args) throws IOException {
+    File file = File.createTempFile("TestDictionaries", ".dict");
+    file.deleteOnExit();
+    file.delete();
+
+    DictionaryADT[] dicts = {
+      new Dictionary(9887),
+      new OpenDictionary(9887),
+      new ConcurrentDictionary(9887),
+      new BoundedDictionary(1 << 19, BoundedDictionary.DEPTH_PREFERRED),
+      new MappedDictionary(file, SQUARES, 1 << 15)
+    };
+    for (int d = 0; d < dicts.length; ++d) test(dicts[d]);
+    ((MappedDictionary) dicts[dicts.length - 1]).close();
+  }
+
+  /* Runs the tests of TestDict on an empty dictionary. */
+  private static void test(DictionaryADT dict) {
+    String name = dict.getClass().getName();
+    String answer = key(20000);
+    String chicken = key(20001);
+    int i;
+
+    // Test 1: insert a data item in the dictionary.
+    try {
+      dict.insert(new Record(answer, 42));
+      succeeded(name, 1);
+    } catch (DictionaryException e) {
+      failed(name, 1);
+    }
+
+    // Test 2: try to insert another data item with the same key.
+    try {
+      dict.insert(new Record(answer, 56));
+      failed(name, 2);
+    } catch (DictionaryException e) {
+      succeeded(name, 2);
+    }
+
+    // Test 3: find a key in the table.
+    if (dict.get(answer) != 42) failed(name, 3);
+    else succeeded(name, 3);
+
+    // Test 4: look for an inexistent key
+    if (dict.get(chicken) != -1) failed(name, 4);
+    else succeeded(name, 4);
+
+    // Test 5: try to delete a nonexistent entry.
+    try {
+      dict.remove(chicken);
+      failed(name, 5);
+    } catch (DictionaryException e) {
+      succeeded(name, 5);
+    }
+
+    // Test 6: delete an actual entry.
+    try {
+      dict.remove(answer);
+      if (dict.get(answer) != -1 || dict.numElements() != 0) failed(name, 6);
+      else succeeded(name, 6);
+    } catch (DictionaryException e) {
+      failed(name, 6);
+    }
+
+    // Test 7: insert 10000 different values into the Dictionary
+    int collisions = 0;
+    try {
+      for (i = 0; i < 10000; ++i) collisions += dict.insert(new Record(key(i), i));
+      if (dict.numElements() != 10000) failed(name, 7);
+      else succeeded(name, 7);
+    } catch (DictionaryException e) {
+      failed(name, 7);
+    }
+
+    // Test 8: check that all these values are in the Dictionary
+    boolean pass = true;
+    for (i = 0; i < 10000 && pass; ++i) pass = (dict.get(key(i)) == i);
+    if (pass) succeeded(name, 8);
+    else failed(name, 8);
+
+    // Test 9: Remove the first 1000 data items and verify that the rest
+    // are in the dictionary
+    try {
+      for (i = 0; i < 1000; ++i) dict.remove(key(i));
+      pass = (dict.numElements() == 9000);
+      for (i = 0; i < 1000 && pass; ++i) pass = (dict.get(key(i)) == -1);
+      for (i = 1000; i < 10000 && pass; ++i) pass = (dict.get(key(i)) == i);
+      if (pass) succeeded(name, 9);
+      else failed(name, 9);
+    } catch (DictionaryException e) {
+      failed(name, 9);
+    }
+
+    // Test 10: Number of collisions
+    if (collisions >= 6000) {
+      failed(name, 10);
+      System.out.println("Too many collisions: " + collisions);
+    }
+    else succeeded(name, 10);
+
+    // Test 11: batch insert and lookup
+    Record[] pairs = new Record[1000];
+    String[] configs = new String[2000];
+    int[] scores = new int[configs.length];
+    for (i = 0; i < pairs.length; ++i) pairs[i] = new Record(key(i), i);
+    for (i = 0; i < configs.length; ++i) configs[i] = key(i < 1000 ? i : 20000 + i);
+    try {
+      dict.insertAll(pairs);
+      dict.getAll(configs, scores);
+      pass = true;
+      for (i = 0; i < configs.length && pass; ++i) pass = (scores[i] == (i < 1000 ? i : -1));
+      if (pass) succeeded(name, 11);
+      else failed(name, 11);
+    } catch (DictionaryException e) {
+      failed(name, 11);
+    }
+  }
+
+  /* Returns a distinct 4x4 board configuration for every i below 3^16. */
+  static String key(int i) {
+    char[] config = new char[SQUARES];
+    for (int square = 0; square < SQUARES; ++square, i /= 3)
+      config[square] = "XO ".charAt(i % 3);
+    return new String(config);
+  }
+
+  private static void succeeded(String name, int test) {
+    System.out.println("   " + name + " test " + test + " succeeded");
+  }
+
+  private static void failed(String name, int test) {
+    System.out.println("***" + name + " test " + test + " failed");
+  }
+}
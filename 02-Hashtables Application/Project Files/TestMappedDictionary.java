@@ -0,0 +1,107 @@
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+public class TestMappedDictionary {
+
+  /*
+  ** Test program for the MappedDictionary class: the Records of a
+  ** dictionary file are found again after it is closed and reopened,
+  ** and files that do not hold a dictionary for the board, or whose
+  ** header does not match their length, are refused.
+  ** To run it type: java TestMappedDictionary
+  */
+
+  private static final int SQUARES = 16;
+
+  public static void main(String[] args) throws IOException {
+    File file = File.createTempFile("TestMappedDictionary", ".dict");
+    file.deleteOnExit();
+    file.delete();
+
+    // Test 1: Records inserted and removed before closing the file are
+    // as they were after reopening it, and the capacity is kept.
+    MappedDictionary dict = new MappedDictionary(file, SQUARES, 1000);
+    for (int i = 0; i < 500; ++i) dict.insert(new Record(TestDictionaries.key(i), i % 4));
+    for (int i = 0; i < 100; ++i) dict.remove(TestDictionaries.key(i));
+    long capacity = dict.capacity();
+    dict.close();
+    dict = new MappedDictionary(file, SQUARES, 1 << 20);
+    boolean pass = dict.numElements() == 400 && dict.capacity() == capacity;
+    for (int i = 0; i < 500 && pass; ++i)
+      pass = (dict.get(TestDictionaries.key(i)) == ((i < 100) ? -1 : i % 4));
+    if (pass) System.out.println("   Test 1 succeeded");
+    else System.out.println("***Test 1 failed");
+
+    // Test 2: a reopened dictionary takes new Records and refuses duplicates.
+    try {
+      dict.insert(new Record(TestDictionaries.key(0), 3));
+      dict.insert(new Record(TestDictionaries.key(100), 3));
+      System.out.println("***Test 2 failed");
+    } catch (DictionaryException e) {
+      if (dict.get(TestDictionaries.key(0)) == 3 && dict.numElements() == 401)
+        System.out.println("   Test 2 succeeded");
+      else System.out.println("***Test 2 failed");
+    }
+    dict.close();
+
+    // Test 3: a dictionary for another board is refused and left as it was.
+    long length = file.length();
+    try {
+      new MappedDictionary(file, 25, 1000);
+      System.out.println("***Test 3 failed");
+    } catch (IOException e) {
+      if (file.length() == length) System.out.println("   Test 3 succeeded");
+      else System.out.println("***Test 3 failed");
+    }
+
+    // Test 4: a small file that is not a dictionary is refused and not grown.
+    File other = File.createTempFile("TestMappedDictionary", ".txt");
+    other.deleteOnExit();
+    FileOutputStream out = new FileOutputStream(other);
+    out.write("not a dictionary".getBytes("US-ASCII"));
+    out.close();
+    try {
+      new MappedDictionary(other, SQUARES, 1000);
+      System.out.println("***Test 4 failed");
+    } catch (IOException e) {
+      if (other.length() == 16) System.out.println("   Test 4 succeeded");
+      else System.out.println("***Test 4 failed");
+    }
+
+    // Test 5: a key for a board of another size is refused.
+    dict = new MappedDictionary(file, SQUARES, 1000);
+    try {
+      dict.insert(new Record("XO  X    XO  X    XO  X  ", 1));
+      System.out.println("***Test 5 failed");
+    } catch (IllegalArgumentException e) {
+      System.out.println("   Test 5 succeeded");
+    }
+    dict.close();
+
+    // Test 6: a truncated file, or one whose record count does not fit
+    // its slots, is refused and left as it was.
+    RandomAccessFile raw = new RandomAccessFile(file, "rw");
+    length = raw.length();
+    raw.setLength(length - 8);
+    pass = refused(file) && file.length() == length - 8;
+    raw.setLength(length);
+    raw.seek(24);
+    raw.writeLong(capacity);
+    raw.close();
+    pass = pass && refused(file) && file.length() == length;
+    if (pass) System.out.println("   Test 6 succeeded");
+    else System.out.println("***Test 6 failed");
+  }
+
+  /* Returns true if reopening the file throws a DictionaryException. */
+  private static boolean refused(File file) throws IOException {
+    try {
+      new MappedDictionary(file, SQUARES, 1000).close();
+      return false;
+    } catch (DictionaryException e) {
+      return true;
+    }
+  }
+}
@@ -0,0 +1,127 @@
+import java.io.File;
+import java.io.IOException;
+
+public class TestPackedKey {
+
+  /*
+  ** Test program for the PackedKey class and the PackedKey
+  ** operations of every implementation of the Dictionary ADT.
+  ** To run it type: java TestPackedKey
+  */
+
+  public static void main(String[] args) throws IOException {
+    String config = "XO  X    ";
+    PackedKey key = new PackedKey(config);
+
+    // Test 1: a key unpacks to the configuration it was made from,
+    // also across the word boundary of a 6x6 board.
+    String large = "XOXOXO      OOXX  X O X O  XXXOOO X ";
+    if (key.toConfig().equals(config) && key.squares() == 9
+        && new PackedKey(large).toConfig().equals(large))
+      System.out.println("   Test 1 succeeded");
+    else System.out.println("***Test 1 failed");
+
+    // Test 2: equal configurations make equal keys with equal hash codes,
+    // and boards that differ in size or in one square make different keys.
+    PackedKey same = new PackedKey(config);
+    if (key.equals(same) && key.hashCode() == same.hashCode()
+        && !key.equals(new PackedKey("XO  X   O"))
+        && !key.equals(new PackedKey("XO  X     ")))
+      System.out.println("   Test 2 succeeded");
+    else System.out.println("***Test 2 failed");
+
+    // Test 3: a character other than 'X', 'O' and ' ' is rejected.
+    try {
+      new PackedKey("XO  Z    ");
+      System.out.println("***Test 3 failed");
+    } catch (IllegalArgumentException e) {
+      System.out.println("   Test 3 succeeded");
+    }
+
+    // Test 4: the key nk_TicTacToe keeps up to date in storePlay()
+    // is the key of its configuration.
+    nk_TicTacToe t = new nk_TicTacToe(6, 4, 0);
+    for (int square = 0; square < large.length(); ++square)
+      if (large.charAt(square) != ' ') t.storePlay(square / 6, square % 6, large.charAt(square));
+    t.storePlay(0, 0, ' ');
+    t.storePlay(0, 0, 'X');
+    if (t.packedConfiguration().equals(new PackedKey(large)))
+      System.out.println("   Test 4 succeeded");
+    else System.out.println("***Test 4 failed");
+
+    // Test 5: every dictionary stores, finds and removes packed keys,
+    // and finds a configuration by either kind of key.
+    File file = File.createTempFile("TestPackedKey", ".dict");
+    file.deleteOnExit();
+    file.delete();
+    MappedDictionary mapped = new MappedDictionary(file, 9, 64);
+    DictionaryADT[] dicts = {
+      new Dictionary(101),
+      new OpenDictionary(101),
+      new ConcurrentDictionary(101),
+      new BoundedDictionary(101, BoundedDictionary.DEPTH_PREFERRED),
+      mapped
+    };
+    for (int d = 0; d < dicts.length; ++d) {
+      DictionaryADT dict = dicts[d];
+      String name = dict.getClass().getName();
+      try {
+        dict.insert(key, 2);
+        dict.insert(new Record("O        ", 3));
+        boolean pass = dict.get(config) == 2 && dict.get(same) == 2
+          && dict.get(new PackedKey("O        ")) == 3;
+        try {
+          dict.insert(same, 1);
+          pass = false;
+        } catch (DictionaryException e) {
+          // a duplicate, as expected
+        }
+        dict.remove(same);
+        pass = pass && dict.get(key) == -1 && dict.get(config) == -1 && dict.numElements() == 1;
+        if (pass) System.out.println("   Test 5 succeeded for " + name);
+        else System.out.println("***Test 5 failed for " + name);
+      } catch (DictionaryException e) {
+        System.out.println("***Test 5 failed for " + name);
+      }
+    }
+    mapped.close();
+
+    // Test 6: with canonical configurations on, a board and its rotation make
+    // the same packed key, the key of the canonical configuration String.
+    nk_TicTacToe a = new nk_TicTacToe(4, 3, 0);
+    nk_TicTacToe b = new nk_TicTacToe(4, 3, 0);
+    a.setCanonicalConfigurations(true);
+    b.setCanonicalConfigurations(true);
+    a.storePlay(0, 1, 'X'); a.storePlay(2, 3, 'O'); a.storePlay(3, 3, 'X');
+    b.storePlay(1, 3, 'X'); b.storePlay(3, 1, 'O'); b.storePlay(3, 0, 'X'); // a turned a quarter clockwise
+    DictionaryADT canonical = new Dictionary(101);
+    a.insertConfig(canonical, 2);
+    if (a.packedConfiguration().equals(b.packedConfiguration())
+        && b.repeatedPackedConfig(canonical) == 2)
+      System.out.println("   Test 6 succeeded");
+    else System.out.println("***Test 6 failed");
+
+    // Test 7: packed keys outlive the growth of the table and the removal
+    // of the keys they collided with.
+    DictionaryADT[] growing = {
+      new Dictionary(101), new OpenDictionary(16), new ConcurrentDictionary(16, 4, false)
+    };
+    for (int d = 0; d < growing.length; ++d) {
+      DictionaryADT dict = growing[d];
+      PackedKey[] keys = new PackedKey[3000];
+      for (int i = 0; i < keys.length; ++i) {
+        char[] board = "                ".toCharArray();
+        for (int square = 0, n = i; n > 0; ++square, n /= 3) board[square] = " XO".charAt(n % 3);
+        keys[i] = new PackedKey(new String(board));
+        dict.insert(keys[i], i % 4);
+      }
+      for (int i = 0; i < keys.length; i += 2) dict.remove(keys[i]);
+      boolean pass = dict.numElements() == keys.length / 2;
+      for (int i = 0; i < keys.length; ++i)
+        pass = pass && dict.get(keys[i]) == ((i % 2 == 0) ? -1 : i % 4);
+      String name = dict.getClass().getName();
+      if (pass) System.out.println("   Test 7 succeeded for " + name);
+      else System.out.println("***Test 7 failed for " + name);
+    }
+  }
+}
@@ -0,0 +1,205 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/* This class implements a transposition table keyed by 64-bit Zobrist keys.
+ * Each slot holds a key and an entry packing the score, the search depth
+ * below the position, the bound type and the best play found from the
+ * position into a single long, so probing and storing allocate nothing.
+ * A slot is overwritten by any newer position. The table may be shared by
+ * several searching threads without locks: each slot stores the key xor-ed
+ * with its entry, so a slot whose key and entry were written by different
+ * threads fails the key check and reads as empty.
+ * A table can be saved to a memory-mapped file and loaded back, so that
+ * positions solved in one session are known in the next.
+ */
+public class TranspositionTable {
+    public static final int EXACT = 0; // the score is the exact value of the position.
+    public static final int LOWER = 1; // the value of the position is at least the score.
+    public static final int UPPER = 2; // the value of the position is at most the score.
+    public static final long NOT_FOUND = 0L;
+    public static final int SOLVED = 0xFF; // the depth of a score that no depth limit affected.
+
+    private static final long VALID = 1L << 62; // set in every stored entry, so no entry is NOT_FOUND.
+    private static final long MAGIC = 0x6E6B54544C424F4BL; // the first long of a saved table.
+    private static final int HEADER = 3; // longs before the slots: MAGIC, the tag and the capacity.
+
+    private long[] keys;    // the Zobrist key xor the entry stored in each slot.
+    private long[] entries; // the packed entry of each slot, NOT_FOUND if the slot is empty.
+    private int mask;       // the number of slots minus one.
+    private int numEntries; // the number of occupied slots.
+
+    /* Class Constructor
+     * @param size the desired number of slots, rounded up to a power of two.
+     */
+    public TranspositionTable(int size) {
+        int capacity = 1;
+        while (capacity < size) capacity <<= 1;
+        keys = new long[capacity];
+        entries = new long[capacity];
+        mask = capacity - 1;
+    }
+
+    /* Accessor Method
+     * @param key the Zobrist key of a position.
+     * @return the packed entry stored for the position, or NOT_FOUND.
+     */
+    public long probe(long key) {
+        int i = slotOf(key);
+        long entry = entries[i];
+        if (entry != NOT_FOUND && (keys[i] ^ entry) == key) return entry;
+        return NOT_FOUND;
+    }
+
+    /* Mutator Method
+     * @param key the Zobrist key of a position.
+     * @param score the score found for the position.
+     * @param depth the number of levels searched below the position, or SOLVED.
+     * @param bound one of EXACT, LOWER or UPPER.
+     */
+    public void store(long key, int score, int depth, int bound) {
+        store(key, score, depth, bound, -1);
+    }
+
+    /* Mutator Method
+     * @param key the Zobrist key of a position.
+     * @param score the score found for the position.
+     * @param depth the number of levels searched below the position, or SOLVED.
+     * @param bound one of EXACT, LOWER or UPPER.
+     * @param move the square of the best play from the position, or -1 if none is known.
+     */
+    public void store(long key, int score, int depth, int bound, int move) {
+        int i = slotOf(key);
+        if (depth != SOLVED) depth = Math.min(depth, SOLVED - 1);
+        long entry = VALID | ((long) ((move + 1) & 0xFFFF) << 32) | ((long) bound << 24)
+                     | ((long) depth << 16) | (score & 0xFFFF);
+        if (entries[i] == NOT_FOUND) numEntries++;
+        keys[i] = key ^ entry;
+        entries[i] = entry;
+    }
+
+    /* Mutator Method
+     * This method empties every slot.
+     */
+    public void clear() {
+        Arrays.fill(entries, NOT_FOUND);
+        numEntries = 0;
+    }
+
+    /* This method writes the table to a file through a memory mapping.
+     * The file holds a header followed by the key and entry of every slot.
+     * @param file the file to write, replaced if it exists.
+     * @param tag a value identifying the game the scores belong to, checked by load().
+     * @throws IOException if the file cannot be written.
+     */
+    public void save(File file, long tag) throws IOException {
+        long bytes = 8L * (HEADER + 2L * keys.length);
+        FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+            StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        try {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, bytes);
+            LongBuffer longs = buffer.asLongBuffer();
+            longs.put(MAGIC).put(tag).put(keys.length);
+            longs.put(keys).put(entries);
+            buffer.force();
+        }
+        finally {
+            channel.close();
+        }
+    }
+
+    /* This method reads a table written by save().
+     * @param file the file to read.
+     * @param tag the value the table must have been saved with.
+     * @return the table stored in the file, or null if the file was saved
+     *    with another tag or is not a saved table.
+     * @throws IOException if the file cannot be read.
+     */
+    public static TranspositionTable load(File file, long tag) throws IOException {
+        FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        try {
+            long bytes = channel.size();
+            if (bytes < 8L * HEADER) return null;
+            LongBuffer longs = channel.map(FileChannel.MapMode.READ_ONLY, 0, bytes).asLongBuffer();
+            long capacity = longs.get(2);
+            if (longs.get(0) != MAGIC || longs.get(1) != tag || Long.bitCount(capacity) != 1
+                || capacity > Integer.MAX_VALUE || bytes != 8L * (HEADER + 2L * capacity)) return null;
+
+            TranspositionTable table = new TranspositionTable((int) capacity);
+            longs.position(HEADER);
+            longs.get(table.keys).get(table.entries);
+            for (int i = 0; i < table.entries.length; i++)
+                if (table.entries[i] != NOT_FOUND) table.numEntries++;
+            return table;
+        }
+        finally {
+            channel.close();
+        }
+    }
+
+    /* Accessor Method
+     * The count is only approximate while several threads store into the table.
+     * @return the number of occupied slots.
+     */
+    public int numElements() {
+        return numEntries;
+    }
+
+    /* @param entry a packed entry returned by probe().
+     * @return the score of the entry.
+     */
+    public static int score(long entry) {
+        return (short) entry;
+    }
+
+    /* @param entry a packed entry returned by probe().
+     * @return the search depth of the entry.
+     */
+    public static int depth(long entry) {
+        return (int) (entry >>> 16) & 0xFF;
+    }
+
+    /* @param entry a packed entry returned by probe().
+     * @return the bound type of the entry.
+     */
+    public static int bound(long entry) {
+        return (int) (entry >>> 24) & 0x3;
+    }
+
+    /* @param entry a packed entry returned by probe().
+     * @return the square of the best play stored in the entry, or -1 if there is none.
+     */
+    public static int move(long entry) {
+        return (int) (entry >>> 32 & 0xFFFF) - 1;
+    }
+
+    /* This method decides whether a stored entry answers a search of the given
+     * depth and window without searching the position again.
+     * @param entry a packed entry returned by probe().
+     * @param depth the number of levels the search needs below the position.
+     * @param alpha the best score the maximizing player is already assured of.
+     * @param beta the best score the minimizing player is already assured of.
+     * @return true if the entry's score can be used as the position's score.
+     */
+    public static boolean usable(long entry, int depth, int alpha, int beta) {
+        if (entry == NOT_FOUND || depth(entry) < depth) return false;
+        int score = score(entry);
+        switch (bound(entry)) {
+            case EXACT: return true;
+            case LOWER: return score >= beta;
+            default:    return score <= alpha;
+        }
+    }
+
+    /* Helper Method
+     * @param key a Zobrist key, whose bits are already uniformly random.
+     * @return the slot of the key.
+     */
+    private int slotOf(long key) {
+        return (int) (key ^ (key >>> 32)) & mask;
+    }
+}
@@ -0,0 +1,118 @@
+/* This class holds the random keys used for Zobrist hashing of a game board.
+ * Every square has one key per symbol, and the key of a board is the xor of
+ * the keys of its occupied squares, so it can be updated in O(1) per play.
+ * The keys come from a fixed seed, which keeps them the same across runs.
+ *
+ * A board also has 7 images under the rotations and reflections of the
+ * square. Boards keep one key per image, updated the same way, and the
+ * smallest of the 8 keys identifies the board and all its images at once.
+ */
+public class Zobrist {
+    public static final int SYMMETRIES = 8;
+
+    private long[] xKeys; // xKeys[i] is the key of an 'X' on square i.
+    private long[] oKeys; // oKeys[i] is the key of an 'O' on square i.
+    private int[][] image;   // image[s][i] is the square that square i moves to under symmetry s.
+    private int[][] inverse; // inverse[s][image[s][i]] is i.
+
+    /* Class Constructor
+     * @param board_size the dimension of the board.
+     */
+    public Zobrist(int board_size) {
+        int squares = board_size * board_size;
+        xKeys = new long[squares];
+        oKeys = new long[squares];
+        long seed = 0x2210L * squares;
+        for (int i = 0; i < squares; i++) {
+            seed += 0x9E3779B97F4A7C15L;
+            xKeys[i] = mix(seed);
+            seed += 0x9E3779B97F4A7C15L;
+            oKeys[i] = mix(seed);
+        }
+
+        int n = board_size - 1;
+        image = new int[SYMMETRIES][squares];
+        inverse = new int[SYMMETRIES][squares];
+        for (int r = 0; r <= n; r++)
+            for (int c = 0; c <= n; c++) {
+                int square = r * board_size + c;
+                image[0][square] = square;                      // identity
+                image[1][square] = c * board_size + (n - r);    // quarter turn
+                image[2][square] = (n - r) * board_size + (n - c); // half turn
+                image[3][square] = (n - c) * board_size + r;    // three quarter turn
+                image[4][square] = r * board_size + (n - c);    // left-right mirror
+                image[5][square] = c * board_size + r;          // main diagonal
+                image[6][square] = (n - r) * board_size + c;    // top-bottom mirror
+                image[7][square] = (n - c) * board_size + (n - r); // anti-diagonal
+            }
+        for (int sym = 0; sym < SYMMETRIES; sym++)
+            for (int square = 0; square < squares; square++)
+                inverse[sym][image[sym][square]] = square;
+    }
+
+    /* Mutator Method
+     * This method updates the keys of a board and of its 7 images after a square changed.
+     * keys[0] is the key of the board itself.
+     * @param keys the SYMMETRIES keys of the board.
+     * @param square the square that changed.
+     * @param oldSymbol the symbol that was on the square.
+     * @param newSymbol the symbol now on the square.
+     */
+    public void update(long[] keys, int square, char oldSymbol, char newSymbol) {
+        for (int sym = 0; sym < SYMMETRIES; sym++) {
+            int moved = image[sym][square];
+            keys[sym] ^= key(moved, oldSymbol) ^ key(moved, newSymbol);
+        }
+    }
+
+    /* Accessor Method
+     * @param keys the SYMMETRIES keys of a board.
+     * @return the symmetry whose image has the smallest key; that image is the canonical board.
+     */
+    public static int canonicalSymmetry(long[] keys) {
+        int best = 0;
+        for (int sym = 1; sym < SYMMETRIES; sym++)
+            if (keys[sym] < keys[best]) best = sym;
+        return best;
+    }
+
+    /* Accessor Method
+     * @param sym a symmetry, 0 to SYMMETRIES - 1.
+     * @param square a square of the board.
+     * @return the square it moves to under the symmetry.
+     */
+    public int image(int sym, int square) {
+        return image[sym][square];
+    }
+
+    /* Accessor Method
+     * @param sym a symmetry, 0 to SYMMETRIES - 1.
+     * @param square a square of the image of the board.
+     * @return the square of the board that moves to it under the symmetry.
+     */
+    public int inverse(int sym, int square) {
+        return inverse[sym][square];
+    }
+
+    /* Accessor Method
+     * @param square the square index, row * board_size + col.
+     * @param symbol 'X', 'O' or ' '.
+     * @return the key of the symbol on the square, 0 for an empty square.
+     */
+    public long key(int square, char symbol) {
+        if (symbol == 'X') return xKeys[square];
+        if (symbol == 'O') return oKeys[square];
+        return 0L;
+    }
+
+    /* Helper Method
+     * This is the SplitMix64 finalizer, which turns a counter into a random-looking value.
+     * @param z the value to mix.
+     * @return the mixed value.
+     */
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -0,0 +1,201 @@
+/* This class chooses plays for n-k tic-tac-toe positions without a user
+ * interface. A position is given as a configuration String of board_size *
+ * board_size characters in row-major order, 'X', 'O' and ' ' (or '.') for
+ * an empty square, the same form nk_TicTacToe stores in the Dictionary.
+ * Every call to solve() searches on its own board, so one solver can be
+ * used by several threads at once. Those threads may share the solutions
+ * found so far through a ConcurrentDictionary, see setCache(). The setters
+ * may be called in any order, but not while solve() runs.
+ */
+public class nk_Solver {
+    private int board_size;
+    private int inline;
+    private int max_level;     // the maximum level of the game tree that will be explored.
+    private boolean bitboard;  // true to search on a BitboardTicTacToe.
+    private boolean symmetry;  // true to share table entries between symmetric positions.
+    private long budget;       // the time allowed per position in milliseconds, 0 for no limit.
+    private boolean graded;    // true to grade the positions cut off by the depth limit.
+    private boolean threats;   // true to settle immediate wins and threats without searching.
+    private int cacheSize;     // the number of solutions remembered, 0 for none.
+    private DictionaryADT solved; // configuration -> PosPlay.pack(score, square), made by the first solve().
+
+    /* This class holds the outcome of solving one position. */
+    public static class Solution {
+        private PosPlay play;    // the best play and its score.
+        private long nodes;      // the positions searched.
+        private long millis;     // the time the search took.
+
+        Solution(PosPlay play, long nodes, long millis) {
+            this.play = play;
+            this.nodes = nodes;
+            this.millis = millis;
+        }
+
+        /* @return the best play and its score, row and column -1 if the game is over. */
+        public PosPlay getPlay() {
+            return play;
+        }
+
+        /* @return the number of positions searched. */
+        public long getNodes() {
+            return nodes;
+        }
+
+        /* @return the time the search took in milliseconds. */
+        public long getMillis() {
+            return millis;
+        }
+
+        /* @return the row, column, score, nodes and time, separated by tabs. */
+        public String toString() {
+            return play.getRow() + "\t" + play.getCol() + "\t" + play.getScore()
+                + "\t" + nodes + "\t" + millis;
+        }
+    }
+
+    /* Class Constructor
+     * @param board_size the dimension of the game board.
+     * @param inline the number of symbols inline needed to win.
+     * @param max_level the maximum level of the game tree that will be explored.
+     */
+    public nk_Solver(int board_size, int inline, int max_level) {
+        this.board_size = board_size;
+        this.inline = inline;
+        this.max_level = max_level;
+    }
+
+    /* Mutator Method
+     * @param bitboard true to search on a BitboardTicTacToe instead of an nk_TicTacToe.
+     */
+    public void setBitboard(boolean bitboard) {
+        this.bitboard = bitboard;
+        solved = null;
+    }
+
+    /* Mutator Method
+     * @param symmetry true to share table entries between symmetric positions.
+     */
+    public void setSymmetry(boolean symmetry) {
+        this.symmetry = symmetry;
+        solved = null;
+    }
+
+    /* Mutator Method
+     * @param graded true to grade the positions cut off by the depth limit by their open lines.
+     */
+    public void setGradedEvaluation(boolean graded) {
+        this.graded = graded;
+        solved = null;
+    }
+
+    /* Mutator Method
+     * @param threats true to take immediate wins and forced blocks without searching.
+     */
+    public void setThreats(boolean threats) {
+        this.threats = threats;
+        solved = null;
+    }
+
+    /* Mutator Method
+     * The solutions are kept in a lossy ConcurrentDictionary, so a position seen
+     * again is answered without searching while a newer position may take its
+     * place. The dictionary is made by the first solve(), and every setter drops
+     * it, since the solutions in it were found with the options as they were.
+     * @param positions the number of solutions remembered, or 0 to search every position.
+     */
+    public void setCache(int positions) {
+        cacheSize = positions;
+        solved = null;
+    }
+
+    /* Mutator Method
+     * @param millis the time allowed per position, or 0 to always search to max_level.
+     */
+    public void setTimeBudget(long millis) {
+        budget = millis;
+        solved = null;
+    }
+
+    /* This method finds the best play for the player to move. As in Play_nk_TTT,
+     * 'X' plays first, so 'X' is to move when both players have played as often.
+     * @param configuration the position, as described above.
+     * @return the best play, its score and the cost of the search.
+     * @throws IllegalArgumentException if the configuration is not a valid position.
+     */
+    public Solution solve(String configuration) {
+        nk_TicTacToeADT board = createBoard(configuration);
+        char symbol = toMove(configuration);
+        if (board.wins('X') || board.wins('O') || board.isDraw())
+            return new Solution(new PosPlay(board.evalBoard(), -1, -1), 0, 0);
+
+        String key = configuration.replace('.', ' ');
+        DictionaryADT cached = cache();
+        if (cached != null) {
+            int packed = cached.get(key);
+            if (packed != -1) {
+                int square = PosPlay.square(packed);
+                return new Solution(new PosPlay(PosPlay.score(packed), square / board_size,
+                    square % board_size), 0, 0);
+            }
+        }
+
+        AlphaBetaSearch search = new AlphaBetaSearch(board, board_size, max_level);
+        search.setSymmetry(symmetry);
+        search.setTimeBudget(budget);
+        search.setGradedEvaluation(graded);
+        search.setThreats(threats);
+        long start = System.nanoTime();
+        PosPlay play = search.computerPlay(symbol);
+        if (cached != null) {
+            int square = play.getRow() * board_size + play.getCol();
+            cached.insert(new Record(key, PosPlay.pack(play.getScore(), square)));
+        }
+        return new Solution(play, search.getNodes(), (System.nanoTime() - start) / 1000000);
+    }
+
+    /* This method builds a board holding the given position.
+     * @param configuration the position, as described above.
+     * @return a new board.
+     * @throws IllegalArgumentException if the configuration is not a valid position.
+     */
+    public nk_TicTacToeADT createBoard(String configuration) {
+        if (configuration.length() != board_size * board_size)
+            throw new IllegalArgumentException("expected " + board_size * board_size + " squares");
+        nk_TicTacToeADT board = bitboard ? new BitboardTicTacToe(board_size, inline, max_level)
+                                         : new nk_TicTacToe(board_size, inline, max_level);
+        for (int square = 0; square < configuration.length(); square++) {
+            char symbol = configuration.charAt(square);
+            if (symbol == 'X' || symbol == 'O')
+                board.storePlay(square / board_size, square % board_size, symbol);
+            else if (symbol != ' ' && symbol != '.')
+                throw new IllegalArgumentException("invalid square '" + symbol + "'");
+        }
+        return board;
+    }
+
+    /* Helper Method
+     * The first caller makes the dictionary, so threads solving at once share it.
+     * @return the dictionary of solutions, or null if none are remembered.
+     */
+    private synchronized DictionaryADT cache() {
+        if (solved == null && cacheSize > 0)
+            solved = new ConcurrentDictionary(cacheSize, ConcurrentDictionary.DEFAULT_STRIPES, true);
+        return solved;
+    }
+
+    /* Helper Method
+     * @param configuration the position, as described above.
+     * @return the symbol of the player to move.
+     * @throws IllegalArgumentException if the numbers of plays cannot occur in a game.
+     */
+    private static char toMove(String configuration) {
+        int x = 0, o = 0;
+        for (int i = 0; i < configuration.length(); i++) {
+            if (configuration.charAt(i) == 'X') x++;
+            else if (configuration.charAt(i) == 'O') o++;
+        }
+        if (x == o) return 'X';
+        if (x == o + 1) return 'O';
+        throw new IllegalArgumentException(x + " X's and " + o + " O's cannot occur in a game");
+    }
+}
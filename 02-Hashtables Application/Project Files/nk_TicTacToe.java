@@ -3,11 +3,18 @@
  * @author Ali Al-Musawi 
  * 
  */
-public class nk_TicTacToe {
+public class nk_TicTacToe implements nk_TicTacToeADT {
     private char[][] gameboard;
     private int inline;
     private int max_levels;
     private int board_size;
+    private Zobrist zobrist; // the random keys of each square and symbol.
+    private long[] keys;     // the Zobrist keys of the gameboard and its 7 symmetric images.
+    private boolean canonical; // true to key the Dictionary by the smallest symmetric image of the board.
+    private LineCounts lines; // the symbol counts of every winning line, kept up to date by storePlay().
+    private long[] packed;    // the gameboard packed 2 bits per square, as in PackedKey.
+    private long[] powers;    // powers[i] is 3 to the power i, the weight of square i in the index.
+    private long index;       // the gameboard read as a base-3 number, see getIndex().
     
     /* Class Constructor
      * @param board_size the dimension of the game board (i.e. 3x3).
@@ -24,23 +31,97 @@ public class nk_TicTacToe {
 		gameboard[i][j] = ' ';
 	    }
 	}
+	zobrist = new Zobrist(board_size);
+	keys = new long[Zobrist.SYMMETRIES];  // 0 is the key of the empty board
+	lines = new LineCounts(board_size, inline);
+	packed = new long[PackedKey.wordsFor(board_size * board_size)];
+	powers = Tablebase.powers(board_size * board_size);
     }
 
     /* This method creates a dictionary to store sequential gameboards.
-     * A conveneient size of 7000 has been chosen.
+     * A conveneient initial size of 7000 has been chosen; the dictionary grows
+     * by itself on larger boards once its load factor is reached.
      * @return an empty Dictionary instance.
      */
     public Dictionary createDictionary() {
 	return (new Dictionary(7000));
     }
 
+    /* This method creates an open addressing dictionary to store sequential gameboards.
+     * It keeps no per-entry node objects, which suits searches that insert many configurations.
+     * @return an empty OpenDictionary instance.
+     */
+    public OpenDictionary createOpenDictionary() {
+	return (new OpenDictionary(7000));
+    }
+
+    /* This method creates a transposition table keyed by the Zobrist key of the gameboard.
+     * @return an empty TranspositionTable instance.
+     */
+    public TranspositionTable createTranspositionTable() {
+	return (new TranspositionTable(1 << 16));
+    }
+
+    /* Accessor Method
+     * The key is updated by storePlay() in O(1), so reading it costs nothing.
+     * @return the Zobrist key of the current gameboard.
+     */
+    public long getKey() {
+	return keys[0];
+    }
+
+    /* Accessor Method
+     * The index is updated by storePlay() in O(1). It only fits in a long for
+     * boards of at most Tablebase.MAX_INDEXED squares.
+     * @return the sum over the squares of 3^square times 0 for ' ', 1 for 'X'
+     *    and 2 for 'O', the position of the gameboard in a Tablebase.
+     */
+    public long getIndex() {
+	return index;
+    }
+
+    /* Accessor Method
+     * @return the Zobrist key of the gameboard or of one of its rotations and reflections,
+     *    the same for all 8 of them.
+     */
+    public long getCanonicalKey() {
+	return keys[Zobrist.canonicalSymmetry(keys)];
+    }
+
+    /* Accessor Method
+     * @param square a square of the gameboard, row * board_size + col.
+     * @return the matching square of the canonical image of the gameboard.
+     */
+    public int toCanonical(int square) {
+	return zobrist.image(Zobrist.canonicalSymmetry(keys), square);
+    }
+
+    /* Accessor Method
+     * @param square a square of the canonical image of the gameboard.
+     * @return the matching square of the gameboard, row * board_size + col.
+     */
+    public int fromCanonical(int square) {
+	return zobrist.inverse(Zobrist.canonicalSymmetry(keys), square);
+    }
+
+    /* Mutator Method
+     * A board and its rotations and reflections have the same score, so with
+     * canonical configurations the Dictionary stores all 8 of them as one Record.
+     * @param canonical true to store and look up the one of the 8 symmetric images
+     *    of the gameboard with the smallest Zobrist key, the image getCanonicalKey()
+     *    keys, instead of the gameboard itself.
+     */
+    public void setCanonicalConfigurations(boolean canonical) {
+	this.canonical = canonical;
+    }
+
     /* This method checks if the current gameboard's configuration exists within the supplied 
      * Dictionary, and returns a score associated with the configuration.
      * @param configurations the Dictionary instance in which to search for the configuration.
      * @return the score of the gameboard's configuration if it is in the dictionary,
      *    or -1 if the configuration does not exist in the dictionary.
      */
-    public int repeatedConfig(Dictionary configurations) {
+    public int repeatedConfig(DictionaryADT configurations) {
 	String config = configurationMaker();
 	int score = configurations.get(config);
         /* configurations.get() returns -1 if it cannot find the config provided. */
@@ -51,12 +132,60 @@ public class nk_TicTacToe {
      * @param configurations the Dictionary in which the Record is inserted.
      * @param score the score attributed to the current gameboard's configuration.
      */
-    public void insertConfig(Dictionary configurations, int score) {
+    public void insertConfig(DictionaryADT configurations, int score) {
 	String config = configurationMaker();
 	Record pair = new Record(config, score);
 	configurations.insert(pair);
     }
 
+    /* This method silently inserts a Record into the provided Dictionary,
+     * recording how deep the gameboard was searched.
+     * @param configurations the Dictionary in which the Record is inserted.
+     * @param score the score attributed to the current gameboard's configuration.
+     * @param depth the number of levels searched below the gameboard.
+     */
+    public void insertConfig(DictionaryADT configurations, int score, int depth) {
+	configurations.insert(new Record(configurationMaker(), score, depth));
+    }
+
+    /* This method checks if the current gameboard's packed configuration exists within
+     * the supplied Dictionary, and returns a score associated with the configuration.
+     * @param configurations the Dictionary instance in which to search for the configuration.
+     * @return the score of the gameboard's configuration if it is in the dictionary,
+     *    or -1 if the configuration does not exist in the dictionary.
+     */
+    public int repeatedPackedConfig(DictionaryADT configurations) {
+	return configurations.get(packedConfiguration());
+    }
+
+    /* This method silently inserts the packed configuration of the gameboard
+     * and its score into the provided Dictionary.
+     * @param configurations the Dictionary in which the configuration is inserted.
+     * @param score the score attributed to the current gameboard's configuration.
+     */
+    public void insertPackedConfig(DictionaryADT configurations, int score) {
+	configurations.insert(packedConfiguration(), score);
+    }
+
+    /* Accessor Method
+     * The words are updated by storePlay(), so making the key only copies them,
+     * unless canonical configurations are on and the canonical image is another
+     * one; its words are then made by moving the 2-bit squares, with no String.
+     * @return the configuration of the gameboard packed 2 bits per square.
+     */
+    public PackedKey packedConfiguration() {
+	int squares = board_size * board_size;
+	int sym = canonical ? Zobrist.canonicalSymmetry(keys) : 0;
+	if (sym == 0) return new PackedKey(packed, squares);
+	long[] image = new long[packed.length];
+	for (int square = 0; square < squares; square++) {
+	    long code = (packed[square >> 5] >>> (2 * (square & 31))) & 3;
+	    int moved = zobrist.image(sym, square);
+	    image[moved >> 5] |= code << (2 * (moved & 31));
+	}
+	return new PackedKey(image, squares);
+    }
+
     /* This method updates the gameboard by inserting the given symbol
      * into the gameboard matrix.
      * @param row the row number in which the symbol is placed.
@@ -64,9 +193,29 @@ public class nk_TicTacToe {
      * @param symbol the symbol to place in (row, col). Either 'X' or 'O'.
      */
     public void storePlay(int row, int col, char symbol) {
+	int square = row * board_size + col;
+	zobrist.update(keys, square, gameboard[row][col], symbol);
+	lines.update(square, gameboard[row][col], symbol);
+	int shift = 2 * (square & 31);
+	packed[square >> 5] = (packed[square >> 5] & ~(3L << shift)) | ((long) PackedKey.code(symbol) << shift);
+	index += (PackedKey.code(symbol) - PackedKey.code(gameboard[row][col])) * powers[square];
 	gameboard[row][col] = symbol;
     }
 
+    /* This method makes an independent board with the same configuration,
+     * so that another thread can search it.
+     * @return a copy of this gameboard.
+     */
+    public nk_TicTacToe copy() {
+	nk_TicTacToe board = new nk_TicTacToe(board_size, inline, max_levels);
+	for (int i = 0; i < board_size; i++) {
+	    for (int j = 0; j < board_size; j++) {
+		if (gameboard[i][j] != ' ') board.storePlay(i, j, gameboard[i][j]);
+	    }
+	}
+	return board;
+    }
+
     /* This method checks if a grid position is empty.
      * @param row the row number to check for availability.
      * @param col the column number to check for availability.
@@ -77,33 +226,13 @@ public class nk_TicTacToe {
     }
 
     /* This method determines whether 'X' or 'O' is a winner.
+     * Only the lines through each played square are checked, as the play is stored,
+     * so this costs O(1) and builds no Strings.
      * @param symbol is either 'X' or 'O'.
      * @returns true if the player ('X' or 'O') is a winner, false otherwise.
      */
     public boolean wins(char symbol) {
-    String winConfig = new String(new char[inline]).replace("\0", Character.toString(symbol));
-	boolean winner = false;
-	/* Check for a row winner */
-	for (int i = 0; !winner && i < board_size; i++) {
-	    winner = (new String(gameboard[i])).contains(winConfig);
-	}
-	if (winner) return true;
-
-	/* Check for a column winner */
-	for (int i = 0; !winner && i < board_size; i++) {
-	    String config = "";
-	    for (int j = 0; j < board_size; j++) {
-		config += gameboard[j][i];
-	    }
-	    winner = config.contains(winConfig);
-	    if (winner) return true;
-	}
-
-	/* Check for a diagonal winner */
-	if (diagonalWinner(symbol)) return true;
-	
-        return winner;  // Always false
-	    
+	return lines.wins(symbol);
     }
 
     /* This method determines if the current game outcome is a draw.
@@ -111,13 +240,7 @@ public class nk_TicTacToe {
      * @return true if the outcome of the current game is a draw, false otherwise.
      */
     public boolean isDraw() {
-        boolean spotAvailable = false;
-        for (int i = 0; !spotAvailable && i < board_size; i++) {
-            for (int j = 0; !spotAvailable && j < board_size; j++) {
-                if(gameboard[i][j] == ' ') spotAvailable = true;
-            }
-        }
-        return (!(spotAvailable || wins('X') || wins('O')));
+        return (lines.emptySquares() == 0 && !(lines.wins('X') || lines.wins('O')));
     }
 
     /* This method decides on a score for the current game board.
@@ -136,77 +259,45 @@ public class nk_TicTacToe {
         return score;
     }
 
+    /* This method grades a position that is not decided yet. It counts the
+     * open lines, holding symbols of one player only, which are kept up to
+     * date by storePlay(); see LineCounts.balance().
+     * @return positive if the open lines favour the computer ('O'), negative
+     *    if they favour the human player ('X').
+     */
+    public int openLines() {
+        return lines.balance();
+    }
+
+    /* This method finds the squares where a player would win at once.
+     * @param symbol is either 'X' or 'O'.
+     * @param squares receives distinct winning squares, row * board_size + col,
+     *    at most squares.length of them.
+     * @return the number of squares stored in squares.
+     */
+    public int winningSquares(char symbol, int[] squares) {
+        return lines.winningSquares(symbol, squares);
+    }
+
     /* Helper Method
      * This method makes a String representation of the current gameboard.
      * @return a String that represents the configuration of the gameboard.
      */
     private String configurationMaker() {
-        String config = "";
+        int squares = board_size * board_size;
+        char[] config = new char[squares];
         for (int i = 0; i < board_size; i++) {
-	    for (int j = 0; j < board_size; j++) {
-	        config = config + gameboard[i][j];
-	    }
+	    System.arraycopy(gameboard[i], 0, config, i * board_size, board_size);
         }
-        return config;
-    }
+        int sym = canonical ? Zobrist.canonicalSymmetry(keys) : 0;
+        if (sym == 0) return new String(config);
 
-    /* Helper Method
-     * This method checks for a diagonal winner. 
-     * There are 4 directions to check:
-     * Upper Left-To-Right and Lower Left-To-Right,
-     * Upper Right-To-Left and Lower Right-To-Left.
-     * @param symbol either 'X' or 'O'.
-     * @return true if a diagoanl winner is found, false otherwise.
-     */ 
-    private boolean diagonalWinner(char symbol) {
-        boolean winner = false;
-	String winConfig = new String(new char[inline]).replace("\0", Character.toString(symbol));
-
-        /* Checking Upper Left-To-Right diagonals */
-        for(int i = 0; !winner && i < board_size; i++) {
-            String config = "";
-            for(int j = 0; j <= i; j++) {
-                int col = j, row = i - j;
-                config += gameboard[row][col];
-            }
-            winner = config.contains(winConfig);
-            if (winner) return true;
-         }
-
-        /* Checking Lower Left-To-Right diagonals */
-        for(int i = 1; !winner && i < board_size; i++) {
-            String config = "";
-            for(int j = i; j < board_size; j++) {
-                int col = j, row = board_size - 1 + i - j;
-                config += gameboard[row][col];
-            }
-            winner = config.contains(winConfig);
-            if (winner) return true;
-         }
-
-        /* Checking Upper Right-To-Left diagonals */
-        for(int i = 0; !winner && i < board_size; i++) {
-            String config = "";
-            for(int j = i; j < board_size; j++) {
-                int col = j, row = j - i;
-                config += gameboard[row][col];
-            }
-            winner = config.contains(winConfig);
-            if (winner) return true;
-         }
-
-        /* Checking Lower Right-To-Left diagonals */
-        for(int i = 1; !winner && i < board_size; i++) {
-            String config = "";
-            for(int j = 0; j < board_size - i; j++) {
-                int col = j, row = j + i;
-                config += gameboard[row][col];
-            }
-            winner = config.contains(winConfig);
-            if (winner) return true;
-         }
-
-        return winner;  // Always false
+        /* the image with the smallest Zobrist key, as for packedConfiguration() */
+        char[] image = new char[squares];
+        for (int square = 0; square < squares; square++) {
+	    image[zobrist.image(sym, square)] = config[square];
+        }
+        return new String(image);
     }
 
 }
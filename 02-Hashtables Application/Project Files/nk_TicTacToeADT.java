@@ -0,0 +1,34 @@
+
+/* The operations the game-tree search needs from an n-k tic-tac-toe board.
+ * Symbols are 'X' (human), 'O' (computer) and ' ' (empty square).
+ */
+public interface nk_TicTacToeADT
+{
+    public void storePlay (int row, int col, char symbol);
+
+    public boolean squareIsEmpty (int row, int col);
+
+    public boolean wins (char symbol);
+
+    public boolean isDraw ();
+
+    public int evalBoard ();
+
+    public int openLines ();
+
+    public int winningSquares (char symbol, int[] squares);
+
+    public long getKey ();
+
+    public long getCanonicalKey ();
+
+    public long getIndex ();
+
+    public int toCanonical (int square);
+
+    public int fromCanonical (int square);
+
+    public TranspositionTable createTranspositionTable ();
+
+    public nk_TicTacToeADT copy ();
+}
@@ -0,0 +1,363 @@
+package benchmarks;
+
+import java.io.File;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Array;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+
+/* JMH benchmarks of insert, get, remove, insertAll and getAll on every
+ * implementation of the Dictionary ADT. They cover the cases of
+ * DictionaryBenchmark, with JMH taking care of the forks, warmup and dead
+ * code: the dictionary, its initial size and load factor, the board size,
+ * and uniform or skewed lookups, a fifth of them for configurations that
+ * are not stored. The keys are made by the same random games, and the
+ * skewed lookups pick the i-th key with probability about proportional to 1/(i+1).
+ *
+ * Each parameter belongs to the state that uses it, so only the benchmarks
+ * it affects are repeated for its values: distribution only varies get and
+ * getAll. The load factor is only taken by Dictionary, so the other
+ * implementations give the same case for every load; run them with
+ * -p load=0.75. BoundedDictionary and MappedDictionary never grow: a
+ * BoundedDictionary of the small size evicts or drops most keys, so remove
+ * is measured on one with room for four times the keys, which keeps all
+ * but a few in a thousand of them, and removes the keys it kept; a
+ * MappedDictionary is always made large enough for all the keys.
+ *
+ * The dictionary a benchmark changes is made before each invocation, in a
+ * state of its own, so get and getAll do not pay for it. DictionaryBenchmark
+ * also prints the bytes allocated per operation; here that is the gc
+ * profiler's gc.alloc.rate.norm. The profiler also counts what the setup
+ * before each invocation allocates, which for remove is filling the
+ * dictionary, so only the get and getAll figures are the operation's alone.
+ *
+ * JMH does not accept benchmarks in the default package, and code in a
+ * package cannot name the classes of the default package, where the
+ * assignment keeps them. The dictionaries are therefore reached through
+ * method handles looked up once by class name; invokeExact on a constant
+ * handle is compiled to a direct call.
+ *
+ * To run it type: mvn -B package -pl modules/benchmarks -am
+ *                 java -jar modules/benchmarks/target/benchmarks.jar [JMH options]
+ * with -prof gc among the JMH options to report allocation.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class DictionaryBench {
+    private static final int KEYS = 20000;
+
+    private static final MethodHandle RECORD, INSERT, INSERT_ALL, REMOVE, GET, GET_ALL, CLOSE;
+    private static final MethodHandle DICTIONARY, OPEN, CONCURRENT, BOUNDED, MAPPED;
+    private static final MethodHandle BOARD, STORE_PLAY, SQUARE_IS_EMPTY, WINS, PACKED, TO_CONFIG;
+    private static final Class<?> RECORD_CLASS;
+    private static final int DEPTH_PREFERRED;
+
+    static {
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+            Class<?> record = Class.forName("Record");
+            Class<?> adt = Class.forName("DictionaryADT");
+            Class<?> bounded = Class.forName("BoundedDictionary");
+            Class<?> mapped = Class.forName("MappedDictionary");
+            Class<?> board = Class.forName("nk_TicTacToe");
+            Class<?> key = Class.forName("PackedKey");
+            Class<?> records = Array.newInstance(record, 0).getClass();
+            RECORD_CLASS = record;
+            RECORD = lookup.findConstructor(record, MethodType.methodType(void.class, String.class, int.class))
+                .asType(MethodType.methodType(Object.class, String.class, int.class));
+            INSERT = lookup.findVirtual(adt, "insert", MethodType.methodType(int.class, record))
+                .asType(MethodType.methodType(int.class, Object.class, Object.class));
+            INSERT_ALL = lookup.findVirtual(adt, "insertAll", MethodType.methodType(int.class, records))
+                .asType(MethodType.methodType(int.class, Object.class, Object.class));
+            REMOVE = lookup.findVirtual(adt, "remove", MethodType.methodType(void.class, String.class))
+                .asType(MethodType.methodType(void.class, Object.class, String.class));
+            GET = lookup.findVirtual(adt, "get", MethodType.methodType(int.class, String.class))
+                .asType(MethodType.methodType(int.class, Object.class, String.class));
+            GET_ALL = lookup.findVirtual(adt, "getAll", MethodType.methodType(void.class, String[].class, int[].class))
+                .asType(MethodType.methodType(void.class, Object.class, String[].class, int[].class));
+            CLOSE = lookup.findVirtual(mapped, "close", MethodType.methodType(void.class))
+                .asType(MethodType.methodType(void.class, Object.class));
+            DICTIONARY = lookup.findConstructor(Class.forName("Dictionary"),
+                    MethodType.methodType(void.class, int.class, float.class))
+                .asType(MethodType.methodType(Object.class, int.class, float.class));
+            OPEN = sized(lookup, "OpenDictionary");
+            CONCURRENT = sized(lookup, "ConcurrentDictionary");
+            BOUNDED = lookup.findConstructor(bounded, MethodType.methodType(void.class, int.class, int.class))
+                .asType(MethodType.methodType(Object.class, int.class, int.class));
+            MAPPED = lookup.findConstructor(mapped, MethodType.methodType(void.class, File.class, int.class, long.class))
+                .asType(MethodType.methodType(Object.class, File.class, int.class, long.class));
+            DEPTH_PREFERRED = bounded.getField("DEPTH_PREFERRED").getInt(null);
+            BOARD = lookup.findConstructor(board, MethodType.methodType(void.class, int.class, int.class, int.class))
+                .asType(MethodType.methodType(Object.class, int.class, int.class, int.class));
+            STORE_PLAY = lookup.findVirtual(board, "storePlay", MethodType.methodType(void.class, int.class, int.class, char.class))
+                .asType(MethodType.methodType(void.class, Object.class, int.class, int.class, char.class));
+            SQUARE_IS_EMPTY = lookup.findVirtual(board, "squareIsEmpty", MethodType.methodType(boolean.class, int.class, int.class))
+                .asType(MethodType.methodType(boolean.class, Object.class, int.class, int.class));
+            WINS = lookup.findVirtual(board, "wins", MethodType.methodType(boolean.class, char.class))
+                .asType(MethodType.methodType(boolean.class, Object.class, char.class));
+            PACKED = lookup.findVirtual(board, "packedConfiguration", MethodType.methodType(key))
+                .asType(MethodType.methodType(Object.class, Object.class));
+            TO_CONFIG = lookup.findVirtual(key, "toConfig", MethodType.methodType(String.class))
+                .asType(MethodType.methodType(String.class, Object.class));
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    /* @return the constructor of the named class taking an initial size. */
+    private static MethodHandle sized(MethodHandles.Lookup lookup, String name) throws ReflectiveOperationException {
+        return lookup.findConstructor(Class.forName(name), MethodType.methodType(void.class, int.class))
+            .asType(MethodType.methodType(Object.class, int.class));
+    }
+
+    /* The dictionary benchmarked, and the configurations it stores. */
+    @State(Scope.Benchmark)
+    public static class Keys {
+        @Param({"dictionary", "open", "concurrent", "bounded", "mapped"})
+        public String impl;
+
+        @Param({"1009", "26666"})
+        public int size;
+
+        @Param({"0.75", "2"})
+        public float load;
+
+        @Param({"4", "6", "8"})
+        public int board;
+
+        String[] keys;
+        String[] absent;   // configurations that are not stored.
+        Object[] pairs;    // a Record for every key, with score i & 3.
+        Object records;    // the same Records in a Record[], for insertAll.
+
+        @Setup(Level.Trial)
+        public void setup() throws Throwable {
+            keys = boards(board, KEYS, new Random(2210 + board));
+            absent = boards(board, KEYS / 4, new Random(-board), keys);
+            pairs = new Object[KEYS];
+            records = Array.newInstance(RECORD_CLASS, KEYS);
+            for (int i = 0; i < KEYS; i++) {
+                pairs[i] = (Object) RECORD.invokeExact(keys[i], i & 3);
+                Array.set(records, i, pairs[i]);
+            }
+        }
+
+        /* @param whole true to make a bounded dictionary large enough to keep nearly every key.
+         * @return an empty dictionary of the implementation benchmarked,
+         * which is kept in the file if it is mapped. */
+        Object create(File file, boolean whole) throws Throwable {
+            switch (impl) {
+                case "open": return (Object) OPEN.invokeExact(size);
+                case "concurrent": return (Object) CONCURRENT.invokeExact(size);
+                case "bounded": return (Object) BOUNDED.invokeExact(whole ? Math.max(size, 4 * KEYS) : size, DEPTH_PREFERRED);
+                case "mapped":
+                    file.delete();
+                    return (Object) MAPPED.invokeExact(file, board * board, Math.max(size, 2L * KEYS));
+                default: return (Object) DICTIONARY.invokeExact(size, load);
+            }
+        }
+
+        /* @param whole true to make a bounded dictionary large enough to keep nearly every key.
+         * @return a new dictionary holding every key it keeps, in the file if it is mapped. */
+        Object fill(File file, boolean whole) throws Throwable {
+            Object dict = create(file, whole);
+            for (int i = 0; i < KEYS; i++) INSERT.invoke(dict, pairs[i]);
+            return dict;
+        }
+
+        /* @return a file for a mapped dictionary, or null for the others. */
+        File file() throws Exception {
+            if (!impl.equals("mapped")) return null;
+            File file = File.createTempFile("DictionaryBench", ".dict");
+            file.deleteOnExit();
+            return file;
+        }
+
+        /* Closes a mapped dictionary and removes its file. */
+        void close(Object dict, File file) throws Throwable {
+            if (file != null && dict != null) {
+                CLOSE.invokeExact(dict);
+                file.delete();
+            }
+        }
+    }
+
+    /* The sequence of configurations looked up. */
+    @State(Scope.Benchmark)
+    public static class Lookups {
+        @Param({"uniform", "skewed"})
+        public String distribution;
+
+        String[] lookups;
+
+        @Setup(Level.Trial)
+        public void setup(Keys keys) {
+            Random random = new Random(7);
+            String[] stored = keys.keys;
+            lookups = new String[KEYS];
+            for (int i = 0; i < KEYS; i++) {
+                if (random.nextInt(5) == 0) lookups[i] = keys.absent[random.nextInt(keys.absent.length)];
+                else if (distribution.equals("skewed")) lookups[i] = stored[(int) Math.pow(KEYS, random.nextDouble()) - 1];
+                else lookups[i] = stored[random.nextInt(KEYS)];
+            }
+        }
+    }
+
+    /* A dictionary holding every key, made once for the lookups. */
+    @State(Scope.Thread)
+    public static class Filled {
+        Object dict;
+        int[] scores = new int[KEYS];
+        private File file;
+
+        @Setup(Level.Trial)
+        public void setup(Keys keys) throws Throwable {
+            file = keys.file();
+            dict = keys.fill(file, false);
+        }
+
+        @TearDown(Level.Trial)
+        public void teardown(Keys keys) throws Throwable {
+            keys.close(dict, file);
+        }
+    }
+
+    /* An empty dictionary, made again before every invocation that fills it. */
+    @State(Scope.Thread)
+    public static class Empty {
+        Object dict;
+        private File file;
+
+        @Setup(Level.Trial)
+        public void setupTrial(Keys keys) throws Exception {
+            file = keys.file();
+        }
+
+        @Setup(Level.Invocation)
+        public void setup(Keys keys) throws Throwable {
+            dict = keys.create(file, false);
+        }
+
+        @TearDown(Level.Invocation)
+        public void teardown(Keys keys) throws Throwable {
+            keys.close(dict, file);
+        }
+    }
+
+    /* A dictionary holding every key, made again before every invocation that empties it. */
+    @State(Scope.Thread)
+    public static class Full {
+        Object dict;
+        String[] kept;  // the keys the dictionary kept, all of them unless it is bounded.
+        private File file;
+
+        @Setup(Level.Trial)
+        public void setupTrial(Keys keys) throws Exception {
+            file = keys.file();
+        }
+
+        @Setup(Level.Invocation)
+        public void setup(Keys keys) throws Throwable {
+            dict = keys.fill(file, true);
+            List<String> found = new ArrayList<String>();
+            for (String key : keys.keys) if ((int) GET.invokeExact(dict, key) != -1) found.add(key);
+            kept = found.toArray(new String[found.size()]);
+        }
+
+        @TearDown(Level.Invocation)
+        public void teardown(Keys keys) throws Throwable {
+            keys.close(dict, file);
+        }
+    }
+
+    /* Fills a new dictionary with every key. */
+    @Benchmark
+    @OperationsPerInvocation(KEYS)
+    public void insert(Empty empty, Keys keys, Blackhole sink) throws Throwable {
+        Object dict = empty.dict;
+        Object[] pairs = keys.pairs;
+        for (int i = 0; i < KEYS; i++) sink.consume((int) INSERT.invokeExact(dict, pairs[i]));
+    }
+
+    /* Fills a new dictionary with every key in one batch call. */
+    @Benchmark
+    @OperationsPerInvocation(KEYS)
+    public int insertAll(Empty empty, Keys keys) throws Throwable {
+        return (int) INSERT_ALL.invokeExact(empty.dict, keys.records);
+    }
+
+    /* Removes every key the dictionary kept, the last inserted first. */
+    @Benchmark
+    @OperationsPerInvocation(KEYS)
+    public void remove(Full full) throws Throwable {
+        Object dict = full.dict;
+        String[] kept = full.kept;
+        for (int i = kept.length - 1; i >= 0; i--) REMOVE.invokeExact(dict, kept[i]);
+    }
+
+    /* Looks up every configuration of the lookup sequence. */
+    @Benchmark
+    @OperationsPerInvocation(KEYS)
+    public void get(Filled filled, Lookups lookups, Blackhole sink) throws Throwable {
+        Object dict = filled.dict;
+        String[] configs = lookups.lookups;
+        for (int i = 0; i < KEYS; i++) sink.consume((int) GET.invokeExact(dict, configs[i]));
+    }
+
+    /* Looks up the same sequence in one batch call. */
+    @Benchmark
+    @OperationsPerInvocation(KEYS)
+    public int[] getAll(Filled filled, Lookups lookups) throws Throwable {
+        GET_ALL.invokeExact(filled.dict, lookups.lookups, filled.scores);
+        return filled.scores;
+    }
+
+    /* Plays random games on an nk_TicTacToe board and keeps the configuration
+     * after every play, as DictionaryBenchmark does, so the keys have the mix
+     * of early and late positions a search meets.
+     * @param boardSize the dimension of the boards.
+     * @param count the number of distinct configurations wanted.
+     * @param random the source of random plays.
+     * @param exclude configurations not to return.
+     * @return distinct configurations.
+     */
+    private static String[] boards(int boardSize, int count, Random random, String... exclude) throws Throwable {
+        int squares = boardSize * boardSize;
+        HashSet<String> seen = new HashSet<String>();
+        for (String config : exclude) seen.add(config);
+        List<String> found = new ArrayList<String>();
+        while (found.size() < count) {
+            Object t = (Object) BOARD.invokeExact(boardSize, Math.min(boardSize, 4), 0);
+            char symbol = 'X';
+            for (int p = 0; p < squares && found.size() < count; p++) {
+                int square = random.nextInt(squares);
+                while (!(boolean) SQUARE_IS_EMPTY.invokeExact(t, square / boardSize, square % boardSize))
+                    square = (square + 1) % squares;
+                STORE_PLAY.invokeExact(t, square / boardSize, square % boardSize, symbol);
+                String config = (String) TO_CONFIG.invokeExact((Object) PACKED.invokeExact(t));
+                if (seen.add(config)) found.add(config);
+                if ((boolean) WINS.invokeExact(t, symbol)) break;
+                symbol = (symbol == 'X') ? 'O' : 'X';
+            }
+        }
+        return found.toArray(new String[found.size()]);
+    }
+}
@@ -0,0 +1,49 @@
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.lang.reflect.InvocationTargetException;
+
+public class RunTests {
+
+  /*
+  ** Runs the test programs named in its arguments, one after the other,
+  ** and exits with status 1 if any of them printed a failed test or
+  ** threw an exception. The build runs it in the test phase of every
+  ** module that has test programs.
+  ** To run it type: java RunTests TestDict TestDictionaries ...
+  */
+
+  public static void main(String[] args) throws Exception {
+    int failures = 0;
+    for (String arg : args)
+      for (String name : arg.trim().split("\\s+"))
+        if (name.length() > 0) failures += run(name);
+    if (failures > 0) {
+      System.out.println(failures + " test(s) failed");
+      System.exit(1);
+    }
+  }
+
+  /* Runs the main method of the named test program and returns the
+   * number of failed tests it printed, counting an exception as one. */
+  private static int run(String name) throws Exception {
+    PrintStream out = System.out;
+    ByteArrayOutputStream captured = new ByteArrayOutputStream();
+    int failures = 0;
+    System.setOut(new PrintStream(captured, true));
+    try {
+      Class.forName(name).getMethod("main", String[].class).invoke(null, (Object) new String[0]);
+    } catch (InvocationTargetException e) {
+      e.getCause().printStackTrace(out);
+      ++failures;
+    } finally {
+      System.out.flush();
+      System.setOut(out);
+    }
+    String output = captured.toString();
+    out.print(output);
+    for (String line : output.split("\n"))
+      if (line.contains("failed")) ++failures;
+    out.println(name + ": " + ((failures == 0) ? "passed" : "FAILED"));
+    return failures;
+  }
+}